@@ -0,0 +1,41 @@
+#!/bin/sh
+# Compares a JMH run with the published baseline and fails if any benchmark got slower than the
+# tolerance allows, or is missing from the run. Needs jq.
+# Usage: ./compare.sh [result.json] [baseline.json]   (TOLERANCE_PERCENT, default 10)
+set -e
+
+dir="$(dirname "$0")"
+result="${1:-$dir/../../target/jmh-result.json}"
+baseline="${2:-$dir/baseline.json}"
+tolerance="${TOLERANCE_PERCENT:-10}"
+out="$(mktemp)"
+trap 'rm -f "$out"' EXIT
+
+# One line per baseline benchmark: status, name, baseline score, run score, unit, change in percent.
+# Slower means a higher score in time modes (avgt, sample, ss) and a lower one in thrpt.
+jq -r -n --slurpfile base "$baseline" --slurpfile run "$result" --argjson tolerance "$tolerance" '
+    def key: .benchmark + ((.params // {}) | tostring);
+    ($run[0] | map({key: key, value: .}) | from_entries) as $runs
+    | $base[0][]
+    | key as $key
+    | .primaryMetric as $b
+    | ($runs[$key].primaryMetric) as $r
+    | if $r == null then
+        "MISSING \($key) - - \($b.scoreUnit) -"
+      elif $r.scoreUnit != $b.scoreUnit then
+        "UNIT \($key) \($b.score) \($r.score) \($b.scoreUnit)->\($r.scoreUnit) -"
+      else
+        (($r.score - $b.score) / $b.score * 100) as $change
+        | (if .mode == "thrpt" then -$change else $change end) as $slower
+        | "\(if $slower > $tolerance then "SLOWER" else "OK" end) \($key) \($b.score) \($r.score) \($b.scoreUnit) \($change * 10 | round / 10)%"
+      end
+' > "$out" || exit 2
+
+awk '{ printf "%-8s %-90s %14s %14s %-8s %s\n", $1, $2, $3, $4, $5, $6 }' "$out"
+failed=$(grep -vc '^OK ' "$out" || true)
+
+if [ "$failed" -gt 0 ]; then
+    echo "$failed benchmark(s) slower than the baseline by more than $tolerance%, missing or in another unit"
+    exit 1
+fi
+echo "All benchmarks within $tolerance% of the baseline"
@@ -0,0 +1,71 @@
+-- Compares the LIKE search predicates of ProductSpecification with the 'fulltext' search mode.
+--
+-- Runs against a scratch schema so the application tables are untouched:
+--   psql "$DATABASE_URL" -v rows=100000 -f product-search.sql
+--
+-- Use run-product-search.sh to repeat it for 10k, 100k and 1M rows.
+
+\set ON_ERROR_STOP on
+\timing on
+
+DROP SCHEMA IF EXISTS search_bench CASCADE;
+CREATE SCHEMA search_bench;
+
+CREATE TABLE search_bench.products (
+    id          varchar(36) PRIMARY KEY,
+    name        varchar(255) NOT NULL,
+    description text,
+    price       numeric(10, 2) NOT NULL,
+    is_active   boolean NOT NULL
+);
+
+INSERT INTO search_bench.products (id, name, description, price, is_active)
+SELECT gen_random_uuid()::text,
+       (ARRAY['Premium', 'Classic', 'Urban', 'Vintage', 'Modern', 'Insulated'])[1 + i % 6] || ' ' ||
+       (ARRAY['Laptop', 'Headphones', 'Sneakers', 'Jacket', 'Lamp', 'Bottle', 'Keyboard'])[1 + i % 7] || ' ' || i,
+       'Product ' || i || ' with ' ||
+       (ARRAY['noise cancellation', 'organic cotton', 'ceramic finish', 'all-day battery', 'UV protection'])[1 + i % 5] ||
+       ' and ' || md5(i::text),
+       (i % 2000) + 0.99,
+       i % 10 <> 0
+FROM generate_series(1, :rows) AS i;
+
+ALTER TABLE search_bench.products ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+    ) STORED;
+CREATE INDEX ON search_bench.products USING GIN (search_vector);
+ANALYZE search_bench.products;
+
+-- Current path: lower(name) LIKE '%x%' OR lower(description) LIKE '%x%'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM search_bench.products
+WHERE (lower(name) LIKE '%headphones%' OR lower(description) LIKE '%headphones%') AND is_active
+ORDER BY id
+LIMIT 12;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM search_bench.products
+WHERE (lower(name) LIKE '%headphones%' OR lower(description) LIKE '%headphones%') AND is_active;
+
+-- 'fulltext' mode: one ranked listing page (ProductRepositoryImpl.findIdsByTextRank), with the same
+-- is_active filter as the LIKE path, and the page's count query
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM search_bench.products
+WHERE search_vector @@ to_tsquery('simple', 'headphones:*') AND is_active
+ORDER BY ts_rank(search_vector, to_tsquery('simple', 'headphones:*')) DESC, id
+LIMIT 12;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM search_bench.products
+WHERE search_vector @@ to_tsquery('simple', 'headphones:*') AND is_active;
+
+-- Multi-term prefix query, as typed into the search box
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM search_bench.products
+WHERE search_vector @@ to_tsquery('simple', 'noise:* & cancel:*') AND is_active
+ORDER BY ts_rank(search_vector, to_tsquery('simple', 'noise:* & cancel:*')) DESC, id
+LIMIT 12;
+
+DROP SCHEMA search_bench CASCADE;
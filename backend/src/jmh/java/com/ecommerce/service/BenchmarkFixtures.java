@@ -0,0 +1,70 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Cart;
+import com.ecommerce.model.CartItem;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Detached entities shaped like the seeded catalog, shared by the benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static Category category() {
+        Category category = new Category();
+        category.setId(UUID.randomUUID().toString());
+        category.setName("Electronics");
+        category.setSlug("electronics");
+        category.setDescription("Latest gadgets and devices");
+        return category;
+    }
+
+    public static List<Product> products(int count) {
+        Category category = category();
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId(UUID.randomUUID().toString());
+            product.setCategory(category);
+            product.setName("Noise Cancelling Headphones " + i);
+            product.setSlug("noise-cancelling-headphones-" + i);
+            product.setDescription("Immerse yourself in music with industry-leading noise cancellation technology.");
+            product.setPrice(new BigDecimal("299.99"));
+            product.setCompareAtPrice(new BigDecimal("349.99"));
+            product.setImages(new ArrayList<>(List.of("https://images.unsplash.com/photo-1505740420928-5e560c06d30e?w=500&q=80")));
+            product.setStock(100);
+            product.setFeatured(i % 3 == 0);
+            products.add(product);
+        }
+        return products;
+    }
+
+    public static Cart cart() {
+        Cart cart = new Cart();
+        cart.setId(UUID.randomUUID().toString());
+        cart.setSessionId(UUID.randomUUID().toString());
+        return cart;
+    }
+
+    public static List<CartItem> cartItems(Cart cart, int count) {
+        List<CartItem> items = new ArrayList<>(count);
+        for (Product product : products(count)) {
+            CartItem item = new CartItem();
+            item.setId(UUID.randomUUID().toString());
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(1 + items.size() % 4);
+            item.setPrice(product.getPrice());
+            items.add(item);
+        }
+        return items;
+    }
+}
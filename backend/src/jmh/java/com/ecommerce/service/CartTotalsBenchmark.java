@@ -0,0 +1,49 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CartDto;
+import com.ecommerce.model.Cart;
+import com.ecommerce.model.CartItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code CartService.mapToDto}: per-line BigDecimal multiply plus the reduce over the whole cart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int itemCount;
+
+    private final CartService cartService = new CartService();
+    private Cart cart;
+    private List<CartItem> items;
+
+    @Setup
+    public void setUp() {
+        cart = BenchmarkFixtures.cart();
+        items = BenchmarkFixtures.cartItems(cart, itemCount);
+    }
+
+    @Benchmark
+    public CartDto mapCart() {
+        return cartService.mapToDto(cart, items);
+    }
+}
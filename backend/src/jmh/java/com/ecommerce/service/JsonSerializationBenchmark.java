@@ -0,0 +1,70 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CartDto;
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.model.Cart;
+import com.ecommerce.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Jackson encoding of the bodies returned by {@code GET /api/products} and the cart endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"12", "48"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private Map<String, Object> productPage;
+    private CartDto cart;
+
+    @Setup
+    public void setUp() {
+        ProductService productService = new ProductService();
+        List<Product> products = BenchmarkFixtures.products(pageSize);
+        List<ProductDto> dtos = products.stream().map(productService::mapToDto).collect(Collectors.toList());
+
+        productPage = new HashMap<>();
+        productPage.put("products", dtos);
+        productPage.put("total", 1000L);
+        productPage.put("page", 1);
+        productPage.put("totalPages", 1000 / pageSize + 1);
+
+        Cart cartEntity = BenchmarkFixtures.cart();
+        cart = new CartService().mapToDto(cartEntity, BenchmarkFixtures.cartItems(cartEntity, pageSize));
+    }
+
+    @Benchmark
+    public byte[] serializeProductPage() throws Exception {
+        return objectMapper.writeValueAsBytes(productPage);
+    }
+
+    @Benchmark
+    public byte[] serializeCart() throws Exception {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one listing page into DTOs, from managed entities (detail path) and from
+ * listing projections (list path).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMappingBenchmark {
+
+    @Param({"12", "48"})
+    private int pageSize;
+
+    private final ProductService productService = new ProductService();
+    private List<Product> products;
+    private List<ProductSummary> summaries;
+    private Map<String, List<String>> images;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkFixtures.products(pageSize);
+        summaries = new ArrayList<>(pageSize);
+        images = new HashMap<>();
+        for (Product p : products) {
+            summaries.add(new ProductSummary(p.getId(), p.getName(), p.getSlug(), p.getDescription(), p.getPrice(),
+                    p.getCompareAtPrice(), p.getStock(), p.isActive(), p.isFeatured(), p.getTaxRate(),
+                    p.getCategory().getName(), p.getCategory().getSlug(), p.getCreatedAt()));
+            images.put(p.getId(), p.getImages());
+        }
+    }
+
+    @Benchmark
+    public List<ProductDto> mapEntities() {
+        List<ProductDto> dtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            dtos.add(productService.mapToDto(product));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<ProductDto> mapSummaries() {
+        List<ProductDto> dtos = new ArrayList<>(summaries.size());
+        for (ProductSummary summary : summaries) {
+            dtos.add(productService.mapToDto(summary, images));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,101 @@
+package com.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded Caffeine caches with per-cache size and TTL. Every cache records statistics, which
+ * Actuator publishes as cache.gets (hit/miss), cache.puts and cache.evictions metrics.
+ *
+ * <p>For each cache, {@code catalog.cache.<name>.spec} bounds size and hard expiry, and
+ * {@code catalog.cache.<name>.fresh-for} sets when entries start being refreshed (see
+ * {@link RefreshingCaffeineCache}). The name is written in kebab-case, e.g.
+ * {@code catalog.cache.product-counts.spec}.
+ *
+ * <p>Refreshes run on a small pool shared by all caches, {@code catalog.cache.refresh-threads}
+ * wide, so the request that triggers one returns the current value at once. When the pool's queue
+ * is full a refresh is skipped and volunteered for again by a later request. Failed refreshes are
+ * counted in {@code cache.refresh.failures}.
+ */
+@Configuration
+public class CacheConfig {
+
+    private static final int REFRESH_QUEUE_CAPACITY = 100;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${catalog.cache.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    @Value("${catalog.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    @Bean
+    public CacheManager cacheManager() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, refreshExecutor, "cacheRefresh");
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                buildCache("products", "maximumSize=2000,expireAfterWrite=10m", Duration.ofMinutes(5)),
+                buildCache("productCounts", "maximumSize=1000,expireAfterWrite=10m", Duration.ofMinutes(5)),
+                buildCache("productFacets", "maximumSize=1000,expireAfterWrite=10m", Duration.ofMinutes(5)),
+                buildCache("product", "maximumSize=10000,expireAfterWrite=1h", Duration.ofMinutes(30)),
+                buildCache("categories", "maximumSize=10,expireAfterWrite=2h", Duration.ofHours(1)),
+                buildCache("category", "maximumSize=1000,expireAfterWrite=2h", Duration.ofHours(1))
+        ));
+        return cacheManager;
+    }
+
+    @PreDestroy
+    public void shutdownRefreshes() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Bean
+    public CacheMeterBinderProvider<RefreshingCaffeineCache> refreshingCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getCaffeineCache(), cache.getName(), tags);
+    }
+
+    private RefreshingCaffeineCache buildCache(String name, String defaultSpec, Duration defaultFreshFor) {
+        String prefix = "catalog.cache." + name.replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase() + ".";
+        String spec = environment.getProperty(prefix + "spec", defaultSpec);
+        Duration freshFor = environment.getProperty(prefix + "fresh-for", Duration.class, defaultFreshFor);
+        return new RefreshingCaffeineCache(name, Caffeine.from(spec).recordStats().build(), freshFor, earlyRefreshBeta,
+                refreshExecutor, meterRegistry.counter("cache.refresh.failures", "cache", name));
+    }
+}
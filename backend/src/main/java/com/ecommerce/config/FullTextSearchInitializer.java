@@ -0,0 +1,40 @@
+package com.ecommerce.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the generated tsvector column and its GIN index used by the 'fulltext' search mode.
+ * Hibernate's ddl-auto cannot express generated columns, so the DDL is applied here once the
+ * products table exists. Both statements are idempotent.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(name = "catalog.search.mode", havingValue = "fulltext")
+public class FullTextSearchInitializer {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${catalog.search.fulltext-config:simple}")
+    private String textSearchConfig;
+
+    @PostConstruct
+    public void createSearchColumn() {
+        if (!textSearchConfig.matches("[a-z_]+")) {
+            throw new IllegalStateException("Invalid text search configuration: " + textSearchConfig);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                "GENERATED ALWAYS AS (" +
+                "setweight(to_tsvector('" + textSearchConfig + "', coalesce(name, '')), 'A') || " +
+                "setweight(to_tsvector('" + textSearchConfig + "', coalesce(description, '')), 'B')" +
+                ") STORED");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector)");
+    }
+}
@@ -1,6 +1,12 @@
 package com.ecommerce.config;
 
 import com.ecommerce.dto.ErrorResponse;
+import com.ecommerce.security.PasswordHashingRejectedException;
+import com.ecommerce.service.CartFlushException;
+import com.ecommerce.service.ConcurrentCartChangeException;
+import com.ecommerce.service.InvalidCartOperationException;
+import com.ecommerce.service.InvalidCursorException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -28,5 +34,45 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler({InvalidCursorException.class, InvalidCartOperationException.class})
+    public ResponseEntity<ErrorResponse> handleBadRequestException(RuntimeException exc) {
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                exc.getMessage(),
+                System.currentTimeMillis());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ConcurrentCartChangeException.class)
+    public ResponseEntity<ErrorResponse> handleConcurrentCartChangeException(ConcurrentCartChangeException exc) {
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                exc.getMessage(),
+                System.currentTimeMillis());
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(CartFlushException.class)
+    public ResponseEntity<ErrorResponse> handleCartFlushException(CartFlushException exc) {
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                exc.getMessage(),
+                System.currentTimeMillis());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordHashingRejectedException(PasswordHashingRejectedException exc) {
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                exc.getMessage(),
+                System.currentTimeMillis());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     // Add more specific exception handlers here (e.g., ResourceNotFoundException)
 }
@@ -0,0 +1,173 @@
+package com.ecommerce.config;
+
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caffeine-backed Spring cache that protects the loaders behind {@code @Cacheable(sync = true)}
+ * against stampedes:
+ * <ul>
+ *   <li>a missing key is loaded once while concurrent callers wait for that result;</li>
+ *   <li>an entry older than {@code freshFor} is reloaded once on the refresh executor while every
+ *       caller, including the one that started the reload, keeps getting the stale value until the
+ *       reload lands or the Caffeine {@code expireAfterWrite} drops it;</li>
+ *   <li>shortly before {@code freshFor} elapses, callers volunteer for that reload with a
+ *       probability that grows with the entry's age and load time (XFetch), so hot keys are
+ *       usually refreshed before they ever go stale.</li>
+ * </ul>
+ * A failed reload keeps serving the stale value and is logged and counted. A value loaded while the cache is cleared or
+ * evicted is returned to its caller but not kept, so invalidation can't be undone by a slow load.
+ */
+public class RefreshingCaffeineCache implements Cache {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshingCaffeineCache.class);
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> store;
+    private final long freshForNanos;
+    private final double beta;
+    private final Executor refreshExecutor;
+    private final Counter refreshFailures;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    // Bumped before every invalidation; loads that started under an older value are not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public RefreshingCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> store,
+                                   Duration freshFor, double beta, Executor refreshExecutor, Counter refreshFailures) {
+        this.name = name;
+        this.store = store;
+        this.freshForNanos = freshFor.toNanos();
+        this.beta = beta;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshFailures = refreshFailures;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getCaffeineCache() {
+        return store;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Entry entry = (Entry) store.getIfPresent(key);
+        return entry == null ? null : new SimpleValueWrapper(entry.value());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long startGeneration = generation.get();
+        Entry entry = (Entry) store.getIfPresent(key);
+        if (entry == null) {
+            Entry loaded = (Entry) store.get(key, k -> load(k, valueLoader));
+            discardIfInvalidated(key, loaded, startGeneration);
+            return (T) loaded.value();
+        }
+
+        if (shouldRefresh(entry) && refreshing.add(key)) {
+            try {
+                refreshExecutor.execute(() -> refresh(key, valueLoader, startGeneration));
+            } catch (RejectedExecutionException e) {
+                // The refresh pool is saturated; a later caller volunteers again
+                refreshing.remove(key);
+            }
+        }
+        return (T) entry.value();
+    }
+
+    private void refresh(Object key, Callable<?> valueLoader, long startGeneration) {
+        try {
+            Entry fresh = load(key, valueLoader);
+            store.put(key, fresh);
+            discardIfInvalidated(key, fresh, startGeneration);
+        } catch (ValueRetrievalException e) {
+            refreshFailures.increment();
+            log.warn("Refreshing {} entry {} failed, serving the stale value", name, key, e.getCause());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store.put(key, new Entry(value, System.nanoTime(), 0));
+    }
+
+    @Override
+    public void evict(Object key) {
+        generation.incrementAndGet();
+        store.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        generation.incrementAndGet();
+        store.invalidateAll();
+    }
+
+    /**
+     * Removes an entry stored after an invalidation started. The generation is bumped before the
+     * store is invalidated, so any invalidation that could have missed the entry is seen here.
+     */
+    private void discardIfInvalidated(Object key, Entry entry, long startGeneration) {
+        if (generation.get() != startGeneration) {
+            store.asMap().remove(key, entry);
+        }
+    }
+
+    private boolean shouldRefresh(Entry entry) {
+        long now = System.nanoTime();
+        if (now - entry.writtenAt() >= freshForNanos) {
+            return true;
+        }
+        // -log(u) is exponentially distributed, so the chance to refresh early rises sharply near expiry
+        double headStart = entry.loadNanos() * beta * -Math.log(ThreadLocalRandom.current().nextDouble());
+        return now + headStart >= entry.writtenAt() + freshForNanos;
+    }
+
+    private <T> Entry load(Object key, Callable<T> valueLoader) {
+        long start = System.nanoTime();
+        try {
+            Object value = valueLoader.call();
+            long end = System.nanoTime();
+            return new Entry(value, end, end - start);
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private record Entry(Object value, long writtenAt, long loadNanos) {
+    }
+}
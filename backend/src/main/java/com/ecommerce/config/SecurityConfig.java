@@ -1,8 +1,13 @@
 package com.ecommerce.config;
 
+import com.ecommerce.security.BoundedPasswordEncoder;
+import com.ecommerce.security.SessionTokenService;
+import com.ecommerce.security.TokenSecurityContextRepository;
 import com.ecommerce.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -12,12 +17,16 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.context.DelegatingSecurityContextRepository;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSecurity
@@ -26,23 +35,41 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SessionTokenService sessionTokens;
+
+    @Value("${security.password-hashing.threads:2}")
+    private int hashingThreads;
+
+    @Value("${security.password-hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    @Value("${security.password-hashing.timeout:5s}")
+    private Duration hashingTimeout;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/auth/**", "/api/products/**", "/api/categories/**", "/api/cart/**").permitAll()
+                .requestMatchers("/api/auth/**", "/api/products/**", "/api/categories/**", "/api/cart/**", "/api/queue/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/products/**", "/api/categories/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .securityContext((securityContext) -> securityContext
-                .securityContextRepository(new DelegatingSecurityContextRepository(
-                    new RequestAttributeSecurityContextRepository(),
-                    new HttpSessionSecurityContextRepository()
-                ))
+                .securityContextRepository(securityContextRepository())
+            )
+            .sessionManagement(session -> session
+                .sessionCreationPolicy(sessionTokens.isStateless() ? SessionCreationPolicy.STATELESS : SessionCreationPolicy.IF_REQUIRED)
             )
             .logout(logout -> logout
                 .logoutUrl("/api/auth/logout")
+                .deleteCookies(SessionTokenService.COOKIE_NAME)
                 .logoutSuccessHandler((req, res, auth) -> {
                     res.setStatus(HttpServletResponse.SC_OK);
                     res.getWriter().write("{\"message\": \"Logged out successfully\"}");
@@ -59,9 +86,19 @@ public class SecurityConfig {
         return http.build();
     }
 
+    @Bean
+    public SecurityContextRepository securityContextRepository() {
+        return new DelegatingSecurityContextRepository(
+            new RequestAttributeSecurityContextRepository(),
+            sessionTokens.isStateless() ? new TokenSecurityContextRepository(sessionTokens) : new HttpSessionSecurityContextRepository()
+        );
+    }
+
+    // BCrypt runs on its own bounded pool so auth load can't take every request thread
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), hashingThreads, hashingQueueCapacity,
+                hashingTimeout, meterRegistry);
     }
 
     @Bean
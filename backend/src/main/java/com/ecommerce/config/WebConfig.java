@@ -1,18 +1,41 @@
 package com.ecommerce.config;
 
+import com.ecommerce.controller.UserActivityInterceptor;
+import com.ecommerce.controller.WaitingRoomInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private WaitingRoomInterceptor waitingRoomInterceptor;
+
+    @Autowired
+    private UserActivityInterceptor userActivityInterceptor;
+
+    @Value("${waiting-room.paths:/api/cart/**}")
+    private String[] waitingRoomPaths;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(waitingRoomInterceptor).addPathPatterns(waitingRoomPaths);
+        registry.addInterceptor(userActivityInterceptor).addPathPatterns("/api/**");
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
                 .allowedOrigins("http://localhost:5173", "http://127.0.0.1:5173")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")
                 .allowedHeaders("*")
+                // Read by the client's waiting-room flow on cross-origin responses
+                .exposedHeaders(WaitingRoomInterceptor.STATUS_HEADER, HttpHeaders.RETRY_AFTER)
                 .allowCredentials(true);
     }
 }
@@ -6,9 +6,12 @@ import com.ecommerce.dto.UserDto;
 import com.ecommerce.model.User;
 import com.ecommerce.model.UserRole;
 import com.ecommerce.repository.UserRepository;
+import com.ecommerce.security.AuthenticatedUser;
+import com.ecommerce.security.LoginThrottle;
+import com.ecommerce.security.SessionTokenService;
+import com.ecommerce.service.UserActivityTracker;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,7 +22,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -41,34 +44,60 @@ public class AuthController {
     @Autowired
     private com.ecommerce.service.CartService cartService;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private SessionTokenService sessionTokens;
+
+    @Autowired
+    private SecurityContextRepository securityContextRepository;
+
+    @Autowired
+    private UserActivityTracker activityTracker;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request, HttpServletResponse response) {
+        if (!loginThrottle.tryAttempt(request.getRemoteAddr(), loginRequest.getEmail())) {
+            return tooManyAttempts();
+        }
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword())
             );
 
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+
+            // A visitor without a guest key never had a guest cart, so there is nothing to merge.
+            // Merged before responding: the client's next cart call must see the merged cart, and a
+            // merge running after the response would race that call's changes to the same rows. It also
+            // runs before the login is saved, so a merge that can't run fails the login as a whole.
+            String guestKey = sessionTokens.guestKey(request, response, false);
+            if (guestKey != null) {
+                cartService.mergeCarts(guestKey, user.getId());
+            }
+
             SecurityContext context = SecurityContextHolder.createEmptyContext();
             context.setAuthentication(authentication);
             SecurityContextHolder.setContext(context);
-            
-            HttpSession session = request.getSession(true);
-            session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+            securityContextRepository.saveContext(context, request, response);
 
-            User user = userRepository.findByEmail(loginRequest.getEmail()).orElseThrow();
-            
-            // Merge cart if session exists
-            cartService.mergeCarts(session.getId(), user.getId());
+            loginThrottle.recordSuccess(loginRequest.getEmail());
+            activityTracker.recordLogin(user.getId());
 
             return ResponseEntity.ok(mapToDto(user));
         } catch (AuthenticationException e) {
+            loginThrottle.recordFailure(loginRequest.getEmail());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Invalid email or password"));
         }
     }
 
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest, HttpServletRequest request) {
-        if (userRepository.findByEmail(registerRequest.getEmail()).isPresent()) {
+        if (!loginThrottle.tryAttempt(request.getRemoteAddr(), null)) {
+            return tooManyAttempts();
+        }
+        if (userRepository.existsByEmail(registerRequest.getEmail())) {
             return ResponseEntity.badRequest().body(Map.of("message", "Email already registered"));
         }
 
@@ -96,11 +125,38 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Not authenticated"));
         }
         
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            if (principal.getEmail() != null) {
+                return ResponseEntity.ok(mapToDto(principal));
+            }
+            // Restored from a session token, which doesn't carry contact details
+            return userRepository.findById(principal.getId())
+                    .<ResponseEntity<?>>map(u -> ResponseEntity.ok(mapToDto(u)))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
+        }
+
         Optional<User> user = userRepository.findByEmail(authentication.getName());
         return user.map(u -> ResponseEntity.ok(mapToDto(u)))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null));
     }
 
+    private ResponseEntity<?> tooManyAttempts() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(Map.of("message", "Too many attempts, please try again later"));
+    }
+
+    private UserDto mapToDto(AuthenticatedUser user) {
+        UserDto dto = new UserDto();
+        dto.setId(user.getId());
+        dto.setEmail(user.getEmail());
+        dto.setFirstName(user.getFirstName());
+        dto.setLastName(user.getLastName());
+        dto.setPhone(user.getPhone());
+        dto.setRole(user.getRole());
+        dto.setVerified(user.isVerified());
+        return dto;
+    }
+
     private UserDto mapToDto(User user) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
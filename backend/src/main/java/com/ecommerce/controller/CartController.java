@@ -1,13 +1,17 @@
 package com.ecommerce.controller;
 
 import com.ecommerce.dto.AddToCartRequest;
+import com.ecommerce.dto.CartBatchRequest;
 import com.ecommerce.dto.CartDto;
 import com.ecommerce.model.User;
 import com.ecommerce.repository.UserRepository;
+import com.ecommerce.security.AuthenticatedUser;
+import com.ecommerce.security.SessionTokenService;
 import com.ecommerce.service.CartService;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -26,7 +30,18 @@ public class CartController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SessionTokenService sessionTokens;
+
+    @Value("${cart.lazy-create:true}")
+    private boolean lazyCreate;
+
     private String getUserId() {
+        AuthenticatedUser user = AuthenticatedUser.current();
+        if (user != null) {
+            return user.getId();
+        }
+        // Sessions created before the principal carried the ID still hold a plain UserDetails
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
              String email = auth.getName();
@@ -37,23 +52,24 @@ public class CartController {
         return null;
     }
 
-    private String getSessionId(HttpServletRequest request) {
-        // Ensure session exists
-        HttpSession session = request.getSession(true);
-        return session.getId();
+    private String getSessionId(HttpServletRequest request, HttpServletResponse response) {
+        // Ensure a guest key exists
+        return sessionTokens.guestKey(request, response, true);
     }
 
+    // With lazy creation, reading the cart neither starts a session nor issues a guest key; visitors
+    // without one see an empty cart. Otherwise the cart is created on first read and needs a key.
     @GetMapping
-    public ResponseEntity<CartDto> getCart(HttpServletRequest request) {
+    public ResponseEntity<CartDto> getCart(HttpServletRequest request, HttpServletResponse response) {
         String userId = getUserId();
-        String sessionId = getSessionId(request);
+        String sessionId = sessionTokens.guestKey(request, response, !lazyCreate);
         return ResponseEntity.ok(cartService.getCart(userId, sessionId));
     }
 
     @PostMapping
-    public ResponseEntity<CartDto> addToCart(@RequestBody AddToCartRequest addToCartRequest, HttpServletRequest request) {
+    public ResponseEntity<CartDto> addToCart(@RequestBody AddToCartRequest addToCartRequest, HttpServletRequest request, HttpServletResponse response) {
         String userId = getUserId();
-        String sessionId = getSessionId(request);
+        String sessionId = getSessionId(request, response);
         return ResponseEntity.ok(cartService.addToCart(userId, sessionId, addToCartRequest));
     }
 
@@ -61,10 +77,11 @@ public class CartController {
     public ResponseEntity<CartDto> updateCartItem(
             @PathVariable String itemId,
             @RequestBody Map<String, Integer> body,
-            HttpServletRequest request
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
         String userId = getUserId();
-        String sessionId = getSessionId(request);
+        String sessionId = getSessionId(request, response);
         Integer quantity = body.get("quantity");
         if (quantity == null) {
             return ResponseEntity.badRequest().build();
@@ -72,10 +89,20 @@ public class CartController {
         return ResponseEntity.ok(cartService.updateCartItem(userId, sessionId, itemId, quantity));
     }
 
+    /**
+     * Applies a list of ADD/UPDATE/REMOVE operations in one transaction and returns the cart once.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<CartDto> applyBatch(@RequestBody CartBatchRequest batchRequest, HttpServletRequest request, HttpServletResponse response) {
+        String userId = getUserId();
+        String sessionId = getSessionId(request, response);
+        return ResponseEntity.ok(cartService.applyBatch(userId, sessionId, batchRequest.getOperations()));
+    }
+
     @DeleteMapping("/items/{itemId}")
-    public ResponseEntity<CartDto> removeFromCart(@PathVariable String itemId, HttpServletRequest request) {
+    public ResponseEntity<CartDto> removeFromCart(@PathVariable String itemId, HttpServletRequest request, HttpServletResponse response) {
         String userId = getUserId();
-        String sessionId = getSessionId(request);
+        String sessionId = getSessionId(request, response);
         return ResponseEntity.ok(cartService.removeFromCart(userId, sessionId, itemId));
     }
 }
@@ -0,0 +1,48 @@
+package com.ecommerce.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.Enumeration;
+
+/**
+ * Conditional GET support for the public catalog endpoints. ETags are versions assigned by
+ * {@link CatalogResponseCache} when a body is encoded.
+ */
+@Component
+public class CatalogHttpCache {
+
+    @Value("${catalog.http.max-age:60s}")
+    private Duration maxAge;
+
+    public CacheControl cacheControl() {
+        return CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    /**
+     * Whether If-None-Match names {@code etag} or is {@code *}, compared weakly (RFC 9110, 13.1.2).
+     * Leaves the response untouched; the caller answers with the 304.
+     */
+    public boolean notModified(ServletWebRequest request, String etag) {
+        String bare = stripWeak(etag);
+        Enumeration<String> headers = request.getRequest().getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (headers.hasMoreElements()) {
+            for (String candidate : StringUtils.commaDelimitedListToStringArray(headers.nextElement())) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || stripWeak(tag).equals(bare)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
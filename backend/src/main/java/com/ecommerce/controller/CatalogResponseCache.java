@@ -0,0 +1,201 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.event.CategoryChangedEvent;
+import com.ecommerce.event.ProductChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already-encoded JSON (and optionally gzip) bodies for the hottest catalog reads, keyed by
+ * resource. A body is valid for the catalog generation it was encoded in; product and category
+ * changes start a new generation. A hit is answered from the stored bytes, or with a 304 when
+ * If-None-Match names its ETag, without calling the loader.
+ *
+ * <p>Every encoded body gets a new version, and its ETag is this node's ID plus that version. Bodies
+ * also expire after {@code catalog.http.response-ttl}, so changes made on other nodes, which start
+ * no generation here, are picked up once the underlying caches have them.
+ */
+@Component
+public class CatalogResponseCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CatalogHttpCache catalogHttpCache;
+
+    @Value("${catalog.http.response-cache-size:10000}")
+    private long maximumSize;
+
+    @Value("${catalog.http.pregzip-min-bytes:1024}")
+    private int pregzipMinBytes;
+
+    @Value("${catalog.http.response-ttl:60s}")
+    private Duration ttl;
+
+    private final String node = UUID.randomUUID().toString().substring(0, 8);
+
+    // Bumped on every catalog change; bodies encoded in an older generation are never served
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    private Cache<String, EncodedBody> bodies;
+
+    @PostConstruct
+    public void init() {
+        bodies = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bodies, "catalogResponses");
+    }
+
+    /**
+     * Serves {@code key} from its encoded bytes while they belong to the current generation, and
+     * otherwise encodes what {@code loader} returns. Responds 304 when the client's copy is current
+     * and 404 when the loader returns null.
+     */
+    public ResponseEntity<byte[]> respond(String key, ServletWebRequest request, Supplier<Object> loader) {
+        // Read before loading, so a change during the load leaves the new body already stale
+        long current = generation.get();
+        EncodedBody body = bodies.getIfPresent(key);
+        if (body == null || body.generation() != current) {
+            Object value = loader.get();
+            if (value == null) {
+                return ResponseEntity.notFound().build();
+            }
+            body = encode(value, current);
+            bodies.put(key, body);
+        }
+        // Each encoding is a different representation and needs its own ETag (RFC 9110, 8.8.3)
+        boolean gzipped = body.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzipped ? gzipEtag(body.etag()) : body.etag();
+        if (catalogHttpCache.notModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(catalogHttpCache.cacheControl())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(catalogHttpCache.cacheControl())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(body.json());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+        bodies.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        generation.incrementAndGet();
+        bodies.invalidateAll();
+    }
+
+    private EncodedBody encode(Object value, long generation) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            String etag = "\"" + node + "-" + versions.incrementAndGet() + "\"";
+            return new EncodedBody(generation, json, json.length >= pregzipMinBytes ? gzip(json) : null, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize catalog response", e);
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip: listed as {@code gzip}, or covered by {@code *}
+     * when gzip isn't listed, with a q-value above 0 (RFC 9110, 12.5.3). Only the exact {@code gzip}
+     * coding counts, since that is what the response's Content-Encoding names.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean wildcard = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean accepted = quality(parts) > 0;
+            if (coding.equals("gzip")) {
+                gzip = accepted;
+            } else {
+                wildcard = accepted;
+            }
+        }
+        return gzip != null ? gzip : wildcard;
+    }
+
+    /** The q parameter of an Accept-Encoding element, 1 if absent and 0 if malformed. */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] param = parts[i].split("=", 2);
+            if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(param[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+
+    private byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private record EncodedBody(long generation, byte[] json, byte[] gzip, String etag) {
+    }
+}
@@ -5,6 +5,7 @@ import com.ecommerce.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -15,15 +16,25 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+
     @GetMapping
-    public List<CategoryDto> getAllCategories() {
-        return categoryService.getAllCategories();
+    public ResponseEntity<byte[]> getAllCategories(ServletWebRequest webRequest) {
+        return catalogResponseCache.respond("categories", webRequest, categoryService::getAllCategories);
     }
 
     @GetMapping("/{slug}")
-    public ResponseEntity<CategoryDto> getCategoryBySlug(@PathVariable String slug) {
-        return categoryService.getCategoryBySlug(slug)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getCategoryBySlug(@PathVariable String slug, ServletWebRequest webRequest) {
+        return catalogResponseCache.respond("category:" + slug, webRequest,
+                () -> categoryService.getCategoryBySlug(slug).orElse(null));
+    }
+
+    @GetMapping("/{slug}/breadcrumbs")
+    public ResponseEntity<byte[]> getBreadcrumbs(@PathVariable String slug, ServletWebRequest webRequest) {
+        return catalogResponseCache.respond("breadcrumbs:" + slug, webRequest, () -> {
+            List<CategoryDto> breadcrumbs = categoryService.getBreadcrumbs(slug);
+            return breadcrumbs.isEmpty() ? null : breadcrumbs;
+        });
     }
 }
@@ -1,7 +1,9 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.dto.ProductCursorPage;
 import com.ecommerce.dto.ProductDto;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.service.SuggestionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -9,9 +11,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -21,8 +26,14 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getProducts(
+    public ResponseEntity<byte[]> getProducts(
             @RequestParam(required = false) String categoryId,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) BigDecimal minPrice,
@@ -31,13 +42,77 @@ public class ProductController {
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortOrder,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "12") int limit
+            @RequestParam(defaultValue = "12") int limit,
+            @RequestParam(defaultValue = "false") boolean cursor,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @RequestParam(defaultValue = "false") boolean facets,
+            ServletWebRequest webRequest
     ) {
-        Sort sort = Sort.by(Sort.Direction.fromString(sortOrder), sortBy);
-        Pageable pageable = PageRequest.of(page - 1, limit, sort);
+        String key = listingKey(categoryId, search, minPrice, maxPrice, featured, sortBy, sortOrder,
+                page, limit, cursor, after, includeTotal, facets);
+        return catalogResponseCache.respond(key, webRequest,
+                () -> listProducts(categoryId, search, minPrice, maxPrice, featured, sortBy, sortOrder,
+                        page, limit, cursor, after, includeTotal, facets));
+    }
+
+    /**
+     * Response cache key built from the bound parameters, so parameter order, spelled-out defaults and
+     * parameters the listing mode ignores all map to the same entry.
+     */
+    private static String listingKey(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice,
+                                     String featured, String sortBy, String sortOrder, int page, int limit,
+                                     boolean cursor, String after, boolean includeTotal, boolean facets) {
+        boolean keyset = cursor || after != null;
+        UriComponentsBuilder key = UriComponentsBuilder.fromPath("products")
+                .queryParam("categoryId", emptyToNull(categoryId))
+                .queryParam("search", emptyToNull(search))
+                .queryParam("minPrice", minPrice != null ? minPrice.stripTrailingZeros().toPlainString() : null)
+                .queryParam("maxPrice", maxPrice != null ? maxPrice.stripTrailingZeros().toPlainString() : null)
+                .queryParam("featured", "true".equals(featured))
+                .queryParam("sortBy", sortBy)
+                .queryParam("sortOrder", sortOrder.toLowerCase(Locale.ROOT))
+                .queryParam("limit", limit)
+                .queryParam("facets", facets);
+        if (keyset) {
+            key.queryParam("after", after).queryParam("includeTotal", includeTotal);
+        } else {
+            key.queryParam("page", page);
+        }
+        return key.encode().build().toUriString();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
 
+    private Map<String, Object> listProducts(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice,
+                                             String featured, String sortBy, String sortOrder, int page, int limit,
+                                             boolean cursor, String after, boolean includeTotal, boolean facets) {
+        Sort.Direction direction = Sort.Direction.fromString(sortOrder);
         Boolean isFeatured = "true".equals(featured) ? true : null;
 
+        // Keyset mode for infinite scroll: no OFFSET, and the total is only counted on request
+        if (cursor || after != null) {
+            ProductCursorPage cursorPage = productService.getProductsAfter(
+                    categoryId, search, minPrice, maxPrice, isFeatured, sortBy, direction, after, limit);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("products", cursorPage.getProducts());
+            response.put("nextCursor", cursorPage.getNextCursor());
+            response.put("hasMore", cursorPage.isHasMore());
+            if (includeTotal) {
+                response.put("total", productService.countProducts(categoryId, search, minPrice, maxPrice, isFeatured));
+            }
+            if (facets) {
+                response.put("facets", productService.getFacets(categoryId, search, minPrice, maxPrice, isFeatured));
+            }
+            return response;
+        }
+
+        Sort sort = Sort.by(direction, sortBy);
+        Pageable pageable = PageRequest.of(page - 1, limit, sort);
+
         Page<ProductDto> productPage = productService.getProducts(categoryId, search, minPrice, maxPrice, isFeatured, pageable);
 
         Map<String, Object> response = new HashMap<>();
@@ -45,14 +120,27 @@ public class ProductController {
         response.put("total", productPage.getTotalElements());
         response.put("page", page);
         response.put("totalPages", productPage.getTotalPages());
+        if (facets) {
+            response.put("facets", productService.getFacets(categoryId, search, minPrice, maxPrice, isFeatured));
+        }
 
+        return response;
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<Map<String, Object>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", suggestionService.suggestProducts(q, limit));
+        response.put("categories", suggestionService.suggestCategories(q, limit));
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/{slug}")
-    public ResponseEntity<ProductDto> getProductBySlug(@PathVariable String slug) {
-        return productService.getProductBySlug(slug)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getProductBySlug(@PathVariable String slug, ServletWebRequest webRequest) {
+        return catalogResponseCache.respond("product:" + slug, webRequest,
+                () -> productService.getProductBySlug(slug).orElse(null));
     }
 }
@@ -0,0 +1,66 @@
+package com.ecommerce.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/queue")
+public class QueueController {
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    /**
+     * Returns the visitor's ticket, issuing one if the request carries none. This is the only place
+     * tickets are issued, and each client address may only join a few times per window. The token is
+     * also set as a cookie; clients that don't keep cookies can send it in the X-Queue-Ticket header.
+     */
+    @PostMapping("/join")
+    public ResponseEntity<Map<String, Object>> join(HttpServletRequest request, HttpServletResponse response) {
+        if (!waitingRoom.isEnabled()) {
+            return ResponseEntity.ok(status((WaitingRoom.Ticket) null));
+        }
+        WaitingRoom.Ticket ticket = waitingRoom.readTicket(request);
+        if (ticket == null) {
+            ticket = waitingRoom.join(request.getRemoteAddr());
+            if (ticket == null) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(Map.of("message", "Too many queue joins, please retry later"));
+            }
+            waitingRoom.writeTicket(response, ticket);
+        }
+        Map<String, Object> body = status(ticket);
+        body.put("token", ticket.token());
+        return ResponseEntity.ok(body);
+    }
+
+    /** Cheap status poll: no session, no database. */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status(HttpServletRequest request) {
+        if (!waitingRoom.isEnabled()) {
+            return ResponseEntity.ok(status((WaitingRoom.Ticket) null));
+        }
+        WaitingRoom.Ticket ticket = waitingRoom.readTicket(request);
+        if (ticket == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "No valid queue ticket"));
+        }
+        return ResponseEntity.ok(status(ticket));
+    }
+
+    private Map<String, Object> status(WaitingRoom.Ticket ticket) {
+        long position = ticket != null ? waitingRoom.position(ticket) : 0;
+        Map<String, Object> body = new HashMap<>();
+        body.put("enabled", waitingRoom.isEnabled());
+        body.put("position", position);
+        body.put("admitted", position == 0);
+        body.put("estimatedWaitSeconds", waitingRoom.estimatedWaitSeconds(position));
+        return body;
+    }
+}
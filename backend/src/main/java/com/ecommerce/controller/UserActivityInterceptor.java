@@ -0,0 +1,29 @@
+package com.ecommerce.controller;
+
+import com.ecommerce.security.AuthenticatedUser;
+import com.ecommerce.service.UserActivityTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Records the logged-in user's last seen time for each API request. The tracker only buffers it in
+ * memory, so this adds no database work to the request.
+ */
+@Component
+public class UserActivityInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private UserActivityTracker activityTracker;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        AuthenticatedUser user = AuthenticatedUser.current();
+        if (user != null) {
+            activityTracker.recordActivity(user.getId());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,221 @@
+package com.ecommerce.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Virtual queue in front of cart traffic during launches, enabled with {@code waiting-room.enabled}.
+ * Visitors get a signed ticket carrying their place in line; tickets are admitted in order at
+ * {@code waiting-room.admit-per-second}, and admitted requests still need one of
+ * {@code waiting-room.max-concurrent} permits, which keeps database concurrency below the pool size.
+ * Waiting costs a signature check and a counter comparison, with no session or database access.
+ * Tickets are only issued by {@code POST /api/queue/join}, at most {@code waiting-room.joins-per-client}
+ * per client address in each {@code waiting-room.join-window}, so nobody can push the line back by
+ * sending requests without a ticket.
+ *
+ * <p>The line is kept per node: ticket numbers only mean something on the node that issued them, so
+ * the balancer must route each visitor to one node (sticky routing). A ticket from another node or
+ * from before a restart is rejected, and the visitor has to join again at the back of the line.
+ *
+ * <p>The web client (client/src/lib/waitingRoom.ts) joins when a queued request is turned away,
+ * sends the ticket in {@value #HEADER_NAME}, waits out {@code Retry-After} while showing the
+ * visitor's place in line, and then repeats the request.
+ */
+@Component
+public class WaitingRoom {
+
+    public static final String COOKIE_NAME = "QUEUE_TICKET";
+    public static final String HEADER_NAME = "X-Queue-Ticket";
+
+    @Value("${waiting-room.enabled:false}")
+    private boolean enabled;
+
+    @Value("${waiting-room.admit-per-second:50}")
+    private int admitPerSecond;
+
+    @Value("${waiting-room.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${waiting-room.permit-wait-ms:200}")
+    private long permitWaitMs;
+
+    @Value("${waiting-room.ticket-ttl:30m}")
+    private Duration ticketTtl;
+
+    @Value("${waiting-room.secret:}")
+    private String secret;
+
+    @Value("${waiting-room.joins-per-client:5}")
+    private int joinsPerClient;
+
+    @Value("${waiting-room.join-window:1m}")
+    private Duration joinWindow;
+
+    // Tickets from before a restart carry another epoch and are replaced
+    private final long epoch = System.currentTimeMillis();
+
+    private SecretKeySpec key;
+    private Semaphore permits;
+    private Cache<String, AtomicInteger> clientJoins;
+
+    // Guarded by this
+    private long issued;
+    private long admittedUpTo;
+    private int budget;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("waiting-room.secret must be set when the waiting room is enabled");
+        }
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        clientJoins = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(joinWindow)
+                .build();
+        permits = new Semaphore(maxConcurrent, true);
+        budget = admitPerSecond;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Issues the next ticket to {@code client}, or returns null if the client has joined too often.
+     * While nobody is waiting and this second's budget lasts, the ticket is admitted at once.
+     */
+    public Ticket join(String client) {
+        if (clientJoins.get(client, k -> new AtomicInteger()).incrementAndGet() > joinsPerClient) {
+            return null;
+        }
+        return issue();
+    }
+
+    private synchronized Ticket issue() {
+        long sequence = ++issued;
+        if (sequence == admittedUpTo + 1 && budget > 0) {
+            admittedUpTo = sequence;
+            budget--;
+        }
+        long expiresAt = System.currentTimeMillis() + ticketTtl.toMillis();
+        String payload = epoch + "." + sequence + "." + expiresAt;
+        return new Ticket(sequence, expiresAt, payload + "." + sign(payload));
+    }
+
+    /** Returns the ticket sent with the request, or null if there is none or it is invalid or expired. */
+    public Ticket readTicket(HttpServletRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        String token = request.getHeader(HEADER_NAME);
+        if (token == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    token = cookie.getValue();
+                }
+            }
+        }
+        return token != null ? parse(token) : null;
+    }
+
+    public void writeTicket(HttpServletResponse response, Ticket ticket) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, ticket.token())
+                .path("/")
+                .httpOnly(true)
+                .sameSite("Lax")
+                .maxAge(ticketTtl)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    /** Tickets ahead of this one still waiting; 0 once it is admitted. */
+    public synchronized long position(Ticket ticket) {
+        return Math.max(0, ticket.sequence() - admittedUpTo);
+    }
+
+    public long estimatedWaitSeconds(long position) {
+        return (position + admitPerSecond - 1) / Math.max(1, admitPerSecond);
+    }
+
+    /** Takes a concurrency permit for an admitted request, waiting briefly if all are in use. */
+    public boolean tryEnter() {
+        try {
+            return permits.tryAcquire(permitWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void leave() {
+        permits.release();
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public synchronized void admit() {
+        if (!enabled) {
+            return;
+        }
+        long admitted = Math.min(issued - admittedUpTo, admitPerSecond);
+        admittedUpTo += admitted;
+        budget = (int) (admitPerSecond - admitted);
+    }
+
+    private Ticket parse(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 4) {
+            return null;
+        }
+        String payload = parts[0] + "." + parts[1] + "." + parts[2];
+        if (!MessageDigest.isEqual(sign(payload).getBytes(StandardCharsets.US_ASCII), parts[3].getBytes(StandardCharsets.US_ASCII))) {
+            return null;
+        }
+        try {
+            long expiresAt = Long.parseLong(parts[2]);
+            if (Long.parseLong(parts[0]) != epoch || expiresAt < System.currentTimeMillis()) {
+                return null;
+            }
+            return new Ticket(Long.parseLong(parts[1]), expiresAt, token);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Ticket(long sequence, long expiresAt, String token) {
+    }
+}
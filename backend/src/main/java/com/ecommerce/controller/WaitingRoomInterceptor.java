@@ -0,0 +1,84 @@
+package com.ecommerce.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Holds requests to the {@code waiting-room.paths} back until their ticket is admitted and a
+ * concurrency permit is free. Requests without a valid ticket are turned away and told to join the
+ * queue; they never get a ticket here, so they can't take places in line. Both kinds of rejection
+ * carry {@value #STATUS_HEADER} ({@code join-required} or {@code waiting}), which the client uses to
+ * join the queue or wait out {@code Retry-After} and send the request again.
+ */
+@Component
+public class WaitingRoomInterceptor implements HandlerInterceptor {
+
+    public static final String STATUS_HEADER = "X-Queue-Status";
+
+    private static final String PERMIT_ATTRIBUTE = WaitingRoomInterceptor.class.getName() + ".permit";
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!waitingRoom.isEnabled()) {
+            return true;
+        }
+
+        WaitingRoom.Ticket ticket = waitingRoom.readTicket(request);
+        if (ticket == null) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            response.setHeader(STATUS_HEADER, "join-required");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    Map.of("message", "A queue ticket is required; join the queue at /api/queue/join"));
+            return false;
+        }
+
+        long position = waitingRoom.position(ticket);
+        if (position > 0) {
+            reject(response, position, waitingRoom.estimatedWaitSeconds(position));
+            return false;
+        }
+        if (!waitingRoom.tryEnter()) {
+            reject(response, 0, 1);
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            waitingRoom.leave();
+        }
+    }
+
+    private void reject(HttpServletResponse response, long position, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfterSeconds)));
+        response.setHeader(STATUS_HEADER, "waiting");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "message", position > 0 ? "You are in the queue" : "Too many requests in progress, please retry",
+                "position", position,
+                "estimatedWaitSeconds", retryAfterSeconds
+        ));
+    }
+}
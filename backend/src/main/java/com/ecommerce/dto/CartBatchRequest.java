@@ -0,0 +1,9 @@
+package com.ecommerce.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CartBatchRequest {
+    private List<CartOperation> operations;
+}
@@ -13,4 +13,6 @@ public class CartItemDto {
     private Integer quantity;
     private BigDecimal price;
     private BigDecimal total;
+    // The line's stock reservation expired and the stock is no longer available
+    private boolean reservationLapsed;
 }
@@ -0,0 +1,19 @@
+package com.ecommerce.dto;
+
+import lombok.Data;
+
+/**
+ * One line of a batch cart update: {@code ADD} takes productId and quantity, {@code UPDATE} takes
+ * itemId and quantity (0 or less removes the item), {@code REMOVE} takes itemId. Operations with a
+ * variantId are rejected until carts support variants.
+ */
+@Data
+public class CartOperation {
+    public enum Type { ADD, UPDATE, REMOVE }
+
+    private Type type;
+    private String productId;
+    private String variantId;
+    private String itemId;
+    private Integer quantity;
+}
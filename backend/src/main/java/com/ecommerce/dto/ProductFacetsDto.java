@@ -0,0 +1,14 @@
+package com.ecommerce.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ProductFacetsDto {
+    private long total;
+    private long inStock;
+    private List<CategoryFacetDto> categories = new ArrayList<>();
+    private List<PriceBucketDto> priceRanges = new ArrayList<>();
+}
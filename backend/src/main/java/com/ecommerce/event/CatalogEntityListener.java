@@ -0,0 +1,40 @@
+package com.ecommerce.event;
+
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that republishes catalog writes as Spring application events, so
+ * in-memory read structures (search index, caches) can follow the database without polling.
+ */
+@Component
+public class CatalogEntityListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void entitySaved(Object entity) {
+        publish(entity, false);
+    }
+
+    @PostRemove
+    public void entityRemoved(Object entity) {
+        publish(entity, true);
+    }
+
+    private void publish(Object entity, boolean removed) {
+        if (entity instanceof Product product) {
+            eventPublisher.publishEvent(new ProductChangedEvent(product, removed));
+        } else if (entity instanceof Category category) {
+            eventPublisher.publishEvent(new CategoryChangedEvent(category, removed));
+        }
+    }
+}
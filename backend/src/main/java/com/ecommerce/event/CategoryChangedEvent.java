@@ -0,0 +1,12 @@
+package com.ecommerce.event;
+
+import com.ecommerce.model.Category;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+    private final Category category;
+    private final boolean removed;
+}
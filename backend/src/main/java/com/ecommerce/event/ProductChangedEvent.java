@@ -0,0 +1,12 @@
+package com.ecommerce.event;
+
+import com.ecommerce.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final Product product;
+    private final boolean removed;
+}
@@ -7,7 +7,12 @@ import org.hibernate.annotations.GenericGenerator;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_carts_session_id", columnNames = "session_id"),
+        @UniqueConstraint(name = "uk_carts_user_id", columnNames = "user_id")
+}, indexes = {
+        @Index(name = "idx_carts_updated_at", columnList = "updated_at")
+})
 @Data
 public class Cart {
     @Id
@@ -28,4 +33,9 @@ public class Cart {
 
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Maintained by CartRepository's version statements only, never written from the entity
+    @Column(name = "version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long version;
 }
@@ -1,5 +1,6 @@
 package com.ecommerce.model;
 
+import com.ecommerce.event.CatalogEntityListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.GenericGenerator;
@@ -9,6 +10,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "categories")
+@EntityListeners(CatalogEntityListener.class)
 @Data
 public class Category {
     @Id
@@ -1,5 +1,6 @@
 package com.ecommerce.model;
 
+import com.ecommerce.event.CatalogEntityListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.GenericGenerator;
@@ -11,6 +12,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "products")
+@EntityListeners(CatalogEntityListener.class)
 @Data
 public class Product {
     @Id
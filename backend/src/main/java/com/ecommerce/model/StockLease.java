@@ -0,0 +1,38 @@
+package com.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock an application node has taken out of {@code products.stock} or {@code product_variants.stock}
+ * to hand out as reservations. The holder renews the lease while it runs; an expired lease is
+ * given back to the product by any other node.
+ */
+@Entity
+@Table(name = "stock_leases", indexes = @Index(name = "idx_stock_leases_expires_at", columnList = "expires_at"))
+@Data
+public class StockLease {
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "product_id", nullable = false, length = 36)
+    private String productId;
+
+    @Column(name = "variant_id", length = 36)
+    private String variantId;
+
+    @Column(nullable = false)
+    private Integer quantity = 0;
+
+    @Column(nullable = false)
+    private String holder;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -46,4 +46,8 @@ public class User {
 
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
+
+    // Both are written in batches by UserActivityTracker
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt;
 }
@@ -2,10 +2,42 @@ package com.ecommerce.repository;
 
 import com.ecommerce.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CartItemRepository extends JpaRepository<CartItem, String> {
     List<CartItem> findByCartId(String cartId);
-    void deleteByCartId(String cartId);
+
+    /**
+     * Loads the items of a cart together with everything the cart view renders (product, its
+     * category and images, variant) in a single statement.
+     */
+    @Query("select ci from CartItem ci join fetch ci.cart c left join fetch c.user " +
+            "join fetch ci.product p left join fetch p.category left join fetch p.images " +
+            "left join fetch ci.variant where c.id = :cartId")
+    List<CartItem> findCartView(@Param("cartId") String cartId);
+
+    @Modifying
+    @Query("delete from CartItem ci where ci.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") String cartId);
+
+    @Modifying
+    @Query("delete from CartItem ci where ci.cart.id in :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") Collection<String> cartIds);
+
+    /** Adds the quantities of the source cart's items to the target cart's items for the same product. */
+    @Modifying
+    @Query(value = "UPDATE cart_items t SET quantity = t.quantity + s.quantity FROM cart_items s " +
+            "WHERE t.cart_id = :targetCartId AND s.cart_id = :sourceCartId AND s.product_id = t.product_id", nativeQuery = true)
+    int addMatchingQuantities(@Param("sourceCartId") String sourceCartId, @Param("targetCartId") String targetCartId);
+
+    /** Moves the source cart's items whose product is not in the target cart yet. */
+    @Modifying
+    @Query(value = "UPDATE cart_items s SET cart_id = :targetCartId WHERE s.cart_id = :sourceCartId " +
+            "AND NOT EXISTS (SELECT 1 FROM cart_items t WHERE t.cart_id = :targetCartId AND t.product_id = s.product_id)", nativeQuery = true)
+    int moveUnmatchedItems(@Param("sourceCartId") String sourceCartId, @Param("targetCartId") String targetCartId);
 }
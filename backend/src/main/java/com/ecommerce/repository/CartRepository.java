@@ -2,10 +2,36 @@ package com.ecommerce.repository;
 
 import com.ecommerce.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, String> {
-    Optional<Cart> findByUserId(String userId);
+    @Query("select c from Cart c join fetch c.user u where u.id = :userId")
+    Optional<Cart> findByUserId(@Param("userId") String userId);
+
     Optional<Cart> findBySessionId(String sessionId);
+
+    /** Oldest guest carts untouched since {@code cutoff}; rows locked by live requests are skipped. */
+    @Query(value = "SELECT id FROM carts WHERE user_id IS NULL AND updated_at < :cutoff " +
+            "ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> lockStaleGuestCartIds(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /** Moves the cart to its next version if it is still at {@code version}; 0 if another change got there first. */
+    @Modifying
+    @Query("update Cart c set c.version = c.version + 1 where c.id = :id and c.version = :version")
+    int claimVersion(@Param("id") String id, @Param("version") long version);
+
+    @Modifying
+    @Query("update Cart c set c.version = c.version + 1 where c.id = :id")
+    int bumpVersion(@Param("id") String id);
+
+    @Modifying
+    @Query("delete from Cart c where c.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
 }
@@ -1,10 +1,16 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.SuggestionDto;
 import com.ecommerce.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, String> {
     Optional<Category> findBySlug(String slug);
+
+    @Query("select new com.ecommerce.dto.SuggestionDto('category', c.name, c.slug) from Category c order by length(c.name), c.name")
+    List<SuggestionDto> findAllSuggestions();
 }
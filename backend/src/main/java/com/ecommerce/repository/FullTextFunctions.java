@@ -0,0 +1,79 @@
+package com.ecommerce.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.sql.ast.tree.expression.ColumnReference;
+import org.hibernate.sql.ast.tree.expression.Expression;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+/**
+ * Query functions over the generated {@code products.search_vector} column of the 'fulltext' search
+ * mode, so the text match and its rank can be part of an ordinary criteria query. The column is not
+ * mapped on the entity, so both functions take a product column (the ID) as their first argument and
+ * address {@code search_vector} through that column's table alias:
+ * <ul>
+ *     <li>{@code fts_matches(p.id, config, query)}: {@code search_vector @@ to_tsquery(config, query)}</li>
+ *     <li>{@code fts_rank(p.id, config, query)}: {@code ts_rank(search_vector, to_tsquery(config, query))}</li>
+ * </ul>
+ * Registered through {@code META-INF/services/org.hibernate.boot.model.FunctionContributor}.
+ */
+public class FullTextFunctions implements FunctionContributor {
+
+    public static final String MATCHES = "fts_matches";
+    public static final String RANK = "fts_rank";
+
+    @Override
+    public void contributeFunctions(FunctionContributions contributions) {
+        BasicTypeRegistry types = contributions.getTypeConfiguration().getBasicTypeRegistry();
+        contributions.getFunctionRegistry().register(MATCHES,
+                new SearchVectorFunction(MATCHES, types.resolve(StandardBasicTypes.BOOLEAN), "(", ".search_vector @@ ", ")"));
+        contributions.getFunctionRegistry().register(RANK,
+                new SearchVectorFunction(RANK, types.resolve(StandardBasicTypes.FLOAT), "ts_rank(", ".search_vector, ", ")"));
+    }
+
+    private static class SearchVectorFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+
+        private final String prefix;
+        private final String operator;
+        private final String suffix;
+
+        SearchVectorFunction(String name, BasicType<?> returnType, String prefix, String operator, String suffix) {
+            super(name, StandardArgumentsValidators.exactly(3),
+                    StandardFunctionReturnTypeResolvers.invariant(returnType),
+                    StandardFunctionArgumentTypeResolvers.NULL);
+            this.prefix = prefix;
+            this.operator = operator;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public void render(SqlAppender sqlAppender, List<? extends SqlAstNode> arguments,
+                           ReturnableType<?> returnType, SqlAstTranslator<?> walker) {
+            ColumnReference column = arguments.get(0) instanceof Expression path ? path.getColumnReference() : null;
+            if (column == null) {
+                throw new IllegalArgumentException(getName() + " expects a products column as its first argument");
+            }
+            sqlAppender.appendSql(prefix);
+            sqlAppender.appendSql(column.getQualifier());
+            sqlAppender.appendSql(operator);
+            sqlAppender.appendSql("to_tsquery(cast(");
+            arguments.get(1).accept(walker);
+            sqlAppender.appendSql(" as regconfig), ");
+            arguments.get(2).accept(walker);
+            sqlAppender.appendSql(")");
+            sqlAppender.appendSql(suffix);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+/**
+ * {@code id_in_list(p.id, ids)}: whether the column's value is one of the comma-separated
+ * {@code ids}, passed as a single bound parameter. Unlike an IN list, the statement stays the same
+ * and within the driver's parameter limit however many IDs there are, so search results can be
+ * matched in SQL without being cut off.
+ * <ul>
+ *     <li>PostgreSQL: {@code p.id = any(string_to_array(ids, ','))}</li>
+ *     <li>Other databases: {@code position(',' || p.id || ',' in ',' || ids || ',') > 0}</li>
+ * </ul>
+ * IDs must not contain commas. Registered through
+ * {@code META-INF/services/org.hibernate.boot.model.FunctionContributor}.
+ */
+public class IdListFunction implements FunctionContributor {
+
+    public static final String NAME = "id_in_list";
+
+    @Override
+    public void contributeFunctions(FunctionContributions contributions) {
+        contributions.getFunctionRegistry().register(NAME, new AbstractSqmSelfRenderingFunctionDescriptor(NAME,
+                StandardArgumentsValidators.exactly(2),
+                StandardFunctionReturnTypeResolvers.invariant(
+                        contributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN)),
+                StandardFunctionArgumentTypeResolvers.NULL) {
+
+            @Override
+            public void render(SqlAppender sqlAppender, List<? extends SqlAstNode> arguments,
+                               ReturnableType<?> returnType, SqlAstTranslator<?> walker) {
+                if (walker.getSessionFactory().getJdbcServices().getDialect() instanceof PostgreSQLDialect) {
+                    sqlAppender.appendSql("(");
+                    arguments.get(0).accept(walker);
+                    sqlAppender.appendSql(" = any(string_to_array(");
+                    arguments.get(1).accept(walker);
+                    sqlAppender.appendSql(", ',')))");
+                } else {
+                    sqlAppender.appendSql("(position(',' || ");
+                    arguments.get(0).accept(walker);
+                    sqlAppender.appendSql(" || ',' in ',' || ");
+                    arguments.get(1).accept(walker);
+                    sqlAppender.appendSql(" || ',') > 0)");
+                }
+            }
+        });
+    }
+}
@@ -1,13 +1,48 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.SuggestionDto;
 import com.ecommerce.model.Product;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, String>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
+    @EntityGraph(attributePaths = {"category", "images"})
     Optional<Product> findBySlug(String slug);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    Optional<Product> findWithImagesById(String id);
+
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findWithImagesByIdIn(Collection<String> ids);
+
     List<Product> findByCategoryId(String categoryId);
+
+    long countByIdIn(Collection<String> ids);
+
+    @Query("select p.id as id, p.name as name, p.description as description from Product p")
+    List<ProductSearchDocument> findAllSearchDocuments();
+
+    @Query("select new com.ecommerce.dto.SuggestionDto('product', p.name, p.slug) from Product p " +
+            "where p.isActive = true order by p.isFeatured desc, length(p.name), p.name")
+    List<SuggestionDto> findAllSuggestions();
+
+    /**
+     * Takes {@code quantity} from the product's stock if that much is left; returns the rows updated.
+     * Bulk updates bypass the entity listeners, so catalog caches pick up the new stock on expiry.
+     */
+    @Modifying
+    @Query("update Product p set p.stock = p.stock - :quantity where p.id = :id and p.stock >= :quantity")
+    int decrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.stock = p.stock + :quantity where p.id = :id")
+    int incrementStock(@Param("id") String id, @Param("quantity") int quantity);
 }
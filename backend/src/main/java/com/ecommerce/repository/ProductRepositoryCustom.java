@@ -0,0 +1,52 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.Product;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+    /**
+     * First phase of a listing: only the IDs of the requested page. The rows for those IDs are then
+     * read with {@link #findSummaries} and {@link #findImages}.
+     */
+    Page<String> findIds(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Like {@link #findIds} but ordered by full-text rank against {@code query} (best first), for the
+     * 'fulltext' search mode. The spec is expected to contain the matching text predicate.
+     */
+    Page<String> findIdsByTextRank(Specification<Product> spec, String config, String query, Pageable pageable);
+
+    /**
+     * Like {@link #findIds} but without an OFFSET and without the count query. Each row holds the
+     * product ID and its {@code keyField} value, enough to build the next keyset cursor.
+     */
+    List<Object[]> findTopKeys(Specification<Product> spec, Sort sort, String keyField, int limit);
+
+    /**
+     * Selects listing rows for the given IDs directly into {@link ProductSummary} records, with the
+     * category columns joined in. Nothing enters the persistence context. Order is unspecified.
+     */
+    List<ProductSummary> findSummaries(Collection<String> ids, boolean includeDescription);
+
+    /**
+     * Image URLs of the given products, keyed by product ID, read in one statement.
+     */
+    Map<String, List<String>> findImages(Collection<String> ids);
+
+    /**
+     * Aggregates facet counts for the products matching {@code spec} in a single grouped query.
+     * Each tuple is one category: category id, name, slug, product count, in-stock count, followed by
+     * one count per price bucket. Bucket {@code i} holds prices below {@code priceBounds[i]} (and at or
+     * above the previous bound); the last bucket holds everything from the last bound upwards.
+     */
+    List<Tuple> aggregateFacets(Specification<Product> spec, List<BigDecimal> priceBounds);
+}
@@ -0,0 +1,190 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<String> findIds(Specification<Product> spec, Pageable pageable) {
+        TypedQuery<String> query = idQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> countMatching(spec));
+    }
+
+    @Override
+    public Page<String> findIdsByTextRank(Specification<Product> spec, String config, String textQuery, Pageable pageable) {
+        TypedQuery<String> query = idQuery(spec, (root, cb) -> List.of(
+                cb.desc(cb.function(FullTextFunctions.RANK, Float.class, root.get("id"), cb.literal(config), cb.literal(textQuery))),
+                cb.asc(root.get("id"))));
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> countMatching(spec));
+    }
+
+    @Override
+    public List<Object[]> findTopKeys(Specification<Product> spec, Sort sort, String keyField, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Product> root = query.from(Product.class);
+        query.multiselect(root.get("id"), root.get(keyField));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductSummary> findSummaries(Collection<String> ids, boolean includeDescription) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummary> query = cb.createQuery(ProductSummary.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+
+        query.select(cb.construct(ProductSummary.class,
+                root.get("id"),
+                root.get("name"),
+                root.get("slug"),
+                includeDescription ? root.get("description") : cb.nullLiteral(String.class),
+                root.get("price"),
+                root.get("compareAtPrice"),
+                root.get("stock"),
+                root.get("isActive"),
+                root.get("isFeatured"),
+                root.get("taxRate"),
+                category.get("name"),
+                category.get("slug"),
+                root.get("createdAt")));
+        query.where(root.get("id").in(ids));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public Map<String, List<String>> findImages(Collection<String> ids) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "select p.id, i from Product p join p.images i where p.id in :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+
+        Map<String, List<String>> images = new HashMap<>();
+        for (Object[] row : rows) {
+            images.computeIfAbsent((String) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return images;
+    }
+
+    @Override
+    public List<Tuple> aggregateFacets(Specification<Product> spec, List<BigDecimal> priceBounds) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category", JoinType.LEFT);
+        Path<BigDecimal> price = root.get("price");
+
+        // Conditional aggregation keeps every facet in one pass over the matching rows
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(category.get("id"));
+        selections.add(category.get("name"));
+        selections.add(category.get("slug"));
+        selections.add(cb.count(root));
+        selections.add(countWhere(cb, cb.greaterThan(root.get("stock"), 0)));
+        for (int i = 0; i <= priceBounds.size(); i++) {
+            List<Predicate> range = new ArrayList<>();
+            if (i > 0) {
+                range.add(cb.greaterThanOrEqualTo(price, priceBounds.get(i - 1)));
+            }
+            if (i < priceBounds.size()) {
+                range.add(cb.lessThan(price, priceBounds.get(i)));
+            }
+            selections.add(countWhere(cb, cb.and(range.toArray(new Predicate[0]))));
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.groupBy(category.get("id"), category.get("name"), category.get("slug"));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private Expression<Integer> countWhere(CriteriaBuilder cb, Predicate predicate) {
+        return cb.sum(cb.<Integer>selectCase().when(predicate, 1).otherwise(0));
+    }
+
+    private TypedQuery<String> idQuery(Specification<Product> spec, Sort sort) {
+        return idQuery(spec, (root, cb) -> QueryUtils.toOrders(sort, root, cb));
+    }
+
+    private TypedQuery<String> idQuery(Specification<Product> spec, BiFunction<Root<Product>, CriteriaBuilder, List<Order>> orders) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<String> query = cb.createQuery(String.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(root.get("id"));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(orders.apply(root, cb));
+
+        return entityManager.createQuery(query);
+    }
+
+    private long countMatching(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.count(root));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,10 @@
+package com.ecommerce.repository;
+
+/**
+ * Lightweight projection of the searchable product fields, used to build the in-memory search index.
+ */
+public interface ProductSearchDocument {
+    String getId();
+    String getName();
+    String getDescription();
+}
@@ -0,0 +1,24 @@
+package com.ecommerce.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only listing row selected straight from the products table, without hydrating a managed entity.
+ * {@code description} is null when the listing is configured to leave it out.
+ */
+public record ProductSummary(
+        String id,
+        String name,
+        String slug,
+        String description,
+        BigDecimal price,
+        BigDecimal compareAtPrice,
+        Integer stock,
+        Boolean active,
+        Boolean featured,
+        BigDecimal taxRate,
+        String categoryName,
+        String categorySlug,
+        LocalDateTime createdAt) {
+}
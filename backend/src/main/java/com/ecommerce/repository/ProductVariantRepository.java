@@ -2,9 +2,21 @@ package com.ecommerce.repository;
 
 import com.ecommerce.model.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, String> {
     List<ProductVariant> findByProductId(String productId);
+
+    /** Takes {@code quantity} from the variant's stock if that much is left; returns the rows updated. */
+    @Modifying
+    @Query("update ProductVariant v set v.stock = v.stock - :quantity where v.id = :id and v.stock >= :quantity")
+    int decrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update ProductVariant v set v.stock = v.stock + :quantity where v.id = :id")
+    int incrementStock(@Param("id") String id, @Param("quantity") int quantity);
 }
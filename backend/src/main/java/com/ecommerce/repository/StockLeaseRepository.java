@@ -0,0 +1,27 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.model.StockLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockLeaseRepository extends JpaRepository<StockLease, String> {
+    List<StockLease> findByHolder(String holder);
+
+    @Modifying
+    @Query("update StockLease l set l.quantity = l.quantity + :delta where l.id = :id")
+    int addQuantity(@Param("id") String id, @Param("delta") int delta);
+
+    @Modifying
+    @Query("update StockLease l set l.expiresAt = :expiresAt where l.holder = :holder")
+    int renew(@Param("holder") String holder, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /** Expired leases of other nodes that stopped renewing them; rows another node is already releasing are skipped. */
+    @Query(value = "SELECT * FROM stock_leases WHERE expires_at < :now AND holder <> :holder ORDER BY expires_at " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<StockLease> lockExpired(@Param("holder") String holder, @Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -1,25 +1,29 @@
 package com.ecommerce.repository.specification;
 
 import com.ecommerce.model.Product;
+import com.ecommerce.repository.FullTextFunctions;
+import com.ecommerce.repository.IdListFunction;
 import org.springframework.data.jpa.domain.Specification;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ProductSpecification {
 
     public static Specification<Product> filter(
-            String categoryId, String search,
+            Collection<String> categoryIds, String search,
             BigDecimal minPrice, BigDecimal maxPrice,
             Boolean isFeatured, Boolean isActive) {
         
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
-            if (categoryId != null && !categoryId.isEmpty()) {
-                predicates.add(cb.equal(root.get("category").get("id"), categoryId));
+            if (categoryIds != null && !categoryIds.isEmpty()) {
+                predicates.add(root.get("category").get("id").in(categoryIds));
             }
 
             if (search != null && !search.isEmpty()) {
@@ -49,4 +53,39 @@ public class ProductSpecification {
             return cb.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    /**
+     * Full-text match on the generated search_vector column ('fulltext' search mode).
+     */
+    public static Specification<Product> matchesText(String config, String tsQuery) {
+        return (root, query, cb) -> cb.isTrue(cb.function(FullTextFunctions.MATCHES, Boolean.class,
+                root.get("id"), cb.literal(config), cb.literal(tsQuery)));
+    }
+
+    /**
+     * Restricts to the given IDs, bound as one parameter however many there are.
+     */
+    public static Specification<Product> hasIdIn(Collection<String> ids) {
+        String idList = String.join(",", ids);
+        return (root, query, cb) -> cb.isTrue(cb.function(IdListFunction.NAME, Boolean.class,
+                root.get("id"), cb.literal(idList)));
+    }
+
+    /**
+     * Keyset predicate selecting the rows that sort after ({@code field}, {@code id}) in the given direction.
+     */
+    public static <T extends Comparable<? super T>> Specification<Product> seekAfter(
+            String field, T value, String id, boolean ascending) {
+
+        return (root, query, cb) -> {
+            Path<T> path = root.get(field);
+            Path<String> idPath = root.get("id");
+            Predicate beyond = ascending ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+            Predicate tie = cb.and(
+                cb.equal(path, value),
+                ascending ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id)
+            );
+            return cb.or(beyond, tie);
+        };
+    }
 }
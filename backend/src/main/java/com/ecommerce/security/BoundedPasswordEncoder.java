@@ -0,0 +1,153 @@
+package com.ecommerce.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a CPU-heavy {@link PasswordEncoder} on a small dedicated pool, so a burst of logins or a
+ * credential-stuffing run can only occupy those threads. The calling thread blocks until its hash
+ * is done, for at most the timeout.
+ *
+ * <p>A hash can't be interrupted once it runs, so admission is what keeps the load bounded: every
+ * queued or running hash holds a slot until it really ends, and a call that finds no free slot fails
+ * at once with {@link PasswordHashingRejectedException}. There are never more slots than the pool can
+ * finish within the timeout, judged by one hash timed at startup, so admitted calls normally don't
+ * time out. One that still does gives up waiting; its hash is dropped if it hasn't started yet, and
+ * otherwise keeps its slot until it is done.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.maxInFlight = maxInFlight(threads, queueCapacity, timeout, timeOneHash(delegate));
+        this.slots = new Semaphore(maxInFlight);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "passwordHashing");
+        this.encodeTimer = meterRegistry.timer("security.password.hashing", "operation", "encode");
+        this.matchesTimer = meterRegistry.timer("security.password.hashing", "operation", "matches");
+        this.rejected = meterRegistry.counter("security.password.hashing.rejected");
+        Gauge.builder("security.password.hashing.in-flight", this, encoder -> encoder.maxInFlight - encoder.slots.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /** Hashes that can be queued or running at once: what the threads finish within the timeout, at most the queue. */
+    static int maxInFlight(int threads, int queueCapacity, Duration timeout, Duration hashTime) {
+        long perThread = timeout.toNanos() / Math.max(1, hashTime.toNanos());
+        return (int) Math.max(1, Math.min(threads + queueCapacity, threads * perThread));
+    }
+
+    private static Duration timeOneHash(PasswordEncoder delegate) {
+        long start = System.nanoTime();
+        delegate.encode("calibration");
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    int maxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    // The timer covers queueing and hashing, i.e. the latency the caller sees
+    private <T> T run(Timer timer, Callable<T> task) {
+        long start = System.nanoTime();
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many sign-in requests, please try again shortly", null);
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many sign-in requests, please try again shortly", e);
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many sign-in requests, please try again shortly", e);
+        } catch (InterruptedException e) {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Drops a hash nobody waits for if it is still queued; a running one finishes and frees its slot then. */
+    private void abandon(Future<?> future) {
+        if (future instanceof RunnableFuture<?> queued && executor.remove(queued)) {
+            slots.release();
+        }
+    }
+}
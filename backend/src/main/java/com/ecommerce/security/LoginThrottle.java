@@ -0,0 +1,91 @@
+package com.ecommerce.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-window limits on password attempts, checked before any hashing: at most
+ * {@code security.login.max-attempts-per-ip} attempts per client address and
+ * {@code security.login.max-failures-per-account} failed logins per account in each
+ * {@code security.login.window}. A successful login clears the account's failures.
+ *
+ * <p>The client address is the request's remote address. Behind the CDN and load balancer Tomcat takes
+ * it from {@code X-Forwarded-For}, but only from proxies on internal networks or matching
+ * {@code server.tomcat.remoteip.trusted-proxies}, which must cover the CDN's edge addresses.
+ */
+@Component
+public class LoginThrottle {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.login.max-attempts-per-ip:30}")
+    private int maxAttemptsPerIp;
+
+    @Value("${security.login.max-failures-per-account:5}")
+    private int maxFailuresPerAccount;
+
+    @Value("${security.login.window:5m}")
+    private Duration window;
+
+    private Cache<String, AtomicInteger> ipAttempts;
+    private Cache<String, AtomicInteger> accountFailures;
+    private Counter throttled;
+
+    @PostConstruct
+    public void init() {
+        ipAttempts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(window)
+                .build();
+        accountFailures = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(window)
+                .build();
+        throttled = meterRegistry.counter("security.login.throttled");
+    }
+
+    /** Counts an attempt from {@code ip} for {@code account} (may be null); false if it is over a limit. */
+    public boolean tryAttempt(String ip, String account) {
+        if (account != null) {
+            AtomicInteger failures = accountFailures.getIfPresent(accountKey(account));
+            if (failures != null && failures.get() >= maxFailuresPerAccount) {
+                throttled.increment();
+                return false;
+            }
+        }
+        if (ipAttempts.get(ip, k -> new AtomicInteger()).incrementAndGet() > maxAttemptsPerIp) {
+            throttled.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void recordFailure(String account) {
+        if (account == null) {
+            return;
+        }
+        accountFailures.get(accountKey(account), k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void recordSuccess(String account) {
+        if (account == null) {
+            return;
+        }
+        accountFailures.invalidate(accountKey(account));
+    }
+
+    private static String accountKey(String account) {
+        return account.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,10 @@
+package com.ecommerce.security;
+
+/**
+ * Thrown when a password can't be hashed or checked because the hashing pool is saturated.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,203 @@
+package com.ecommerce.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keeps the visitor's login and guest cart key either in the servlet session ({@code session.mode=servlet},
+ * the default) or in an HMAC-signed cookie ({@code session.mode=token}). A token is checked with one
+ * signature computation and needs no store, so any node can serve any request; all nodes must share
+ * {@code session.token.secret}, which is required in token mode.
+ *
+ * <p>The token is signed, not encrypted, so it carries only the user's ID, role and name. They are
+ * copied into it at login and are not refreshed until the next login or until
+ * {@code session.token.ttl} runs out; anything else about the user is read from the database.
+ */
+@Component
+public class SessionTokenService {
+
+    public static final String COOKIE_NAME = "SESSION_TOKEN";
+
+    private static final String REQUEST_ATTRIBUTE = SessionTokenService.class.getName() + ".TOKEN";
+    private static final Token NONE = new Token(null, null, 0);
+
+    @Value("${session.mode:servlet}")
+    private String mode;
+
+    @Value("${session.token.ttl:7d}")
+    private Duration ttl;
+
+    @Value("${session.token.secret:}")
+    private String secret;
+
+    @Value("${session.token.secure-cookie:false}")
+    private boolean secureCookie;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    public void init() {
+        if (!isStateless()) {
+            return;
+        }
+        if (secret == null || secret.isBlank()) {
+            // A per-process key would log everyone out on restart and reject other nodes' tokens
+            throw new IllegalStateException("session.token.secret must be set when session.mode=token");
+        }
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    public boolean isStateless() {
+        return "token".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Returns the key that identifies the visitor's guest cart. Without one, a new key is issued when
+     * {@code create} is set and null is returned otherwise.
+     */
+    public String guestKey(HttpServletRequest request, HttpServletResponse response, boolean create) {
+        if (!isStateless()) {
+            HttpSession session = request.getSession(create);
+            return session != null ? session.getId() : null;
+        }
+        Token token = read(request);
+        if (token.guestId() != null) {
+            // Sliding expiry for visitors that keep using their cart
+            if (create && token.expiresAt() - System.currentTimeMillis() < ttl.toMillis() / 2) {
+                write(request, response, new Token(token.user(), token.guestId(), expiry()));
+            }
+            return token.guestId();
+        }
+        if (!create) {
+            return null;
+        }
+        String guestId = UUID.randomUUID().toString();
+        write(request, response, new Token(token.user(), guestId, expiry()));
+        return guestId;
+    }
+
+    /** The user carried by the request's token, or null. */
+    public AuthenticatedUser readUser(HttpServletRequest request) {
+        return read(request).user();
+    }
+
+    public void writeUser(HttpServletRequest request, HttpServletResponse response, AuthenticatedUser user) {
+        write(request, response, new Token(user, read(request).guestId(), expiry()));
+    }
+
+    public void clear(HttpServletRequest request, HttpServletResponse response) {
+        request.setAttribute(REQUEST_ATTRIBUTE, NONE);
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie("", Duration.ZERO));
+    }
+
+    private Token read(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof Token token) {
+            return token;
+        }
+        Token token = NONE;
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    token = parse(cookie.getValue());
+                }
+            }
+        }
+        request.setAttribute(REQUEST_ATTRIBUTE, token);
+        return token;
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, Token token) {
+        request.setAttribute(REQUEST_ATTRIBUTE, token);
+        AuthenticatedUser user = token.user();
+        String payload = String.join("|",
+                encode(token.guestId()),
+                encode(user != null ? user.getId() : null),
+                encode(user != null ? user.getFirstName() : null),
+                encode(user != null ? user.getLastName() : null),
+                encode(user != null ? user.getRole() : null),
+                Long.toString(token.expiresAt()));
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(payload + "." + sign(payload), ttl));
+    }
+
+    private Token parse(String value) {
+        int dot = value.lastIndexOf('.');
+        if (dot < 0) {
+            return NONE;
+        }
+        String payload = value.substring(0, dot);
+        if (!MessageDigest.isEqual(sign(payload).getBytes(StandardCharsets.US_ASCII),
+                value.substring(dot + 1).getBytes(StandardCharsets.US_ASCII))) {
+            return NONE;
+        }
+        String[] parts = payload.split("\\|", -1);
+        if (parts.length != 6) {
+            return NONE;
+        }
+        try {
+            long expiresAt = Long.parseLong(parts[5]);
+            if (expiresAt < System.currentTimeMillis()) {
+                return NONE;
+            }
+            String userId = decode(parts[1]);
+            AuthenticatedUser user = userId == null ? null : new AuthenticatedUser(userId, null,
+                    decode(parts[2]), decode(parts[3]), null, decode(parts[4]), false, null);
+            return new Token(user, decode(parts[0]), expiresAt);
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + ttl.toMillis();
+    }
+
+    private String cookie(String value, Duration maxAge) {
+        return ResponseCookie.from(COOKIE_NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .secure(secureCookie)
+                .sameSite("Lax")
+                .maxAge(maxAge)
+                .build()
+                .toString();
+    }
+
+    private static String encode(String value) {
+        return value == null ? "" : Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return value.isEmpty() ? null : new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Token(AuthenticatedUser user, String guestId, long expiresAt) {
+    }
+}
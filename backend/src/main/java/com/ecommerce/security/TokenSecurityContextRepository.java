@@ -0,0 +1,83 @@
+package com.ecommerce.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+/**
+ * Security context repository for {@code session.mode=token}: the context is rebuilt from the signed
+ * session cookie on each request, and saving it rewrites the cookie.
+ */
+public class TokenSecurityContextRepository implements SecurityContextRepository {
+
+    private final SessionTokenService sessionTokens;
+
+    public TokenSecurityContextRepository(SessionTokenService sessionTokens) {
+        this.sessionTokens = sessionTokens;
+    }
+
+    @Override
+    @Deprecated
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        SecurityContext context = readContext(requestResponseHolder.getRequest());
+        return context != null ? context : SecurityContextHolder.createEmptyContext();
+    }
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        return new DeferredSecurityContext() {
+            private SecurityContext context;
+            private boolean generated;
+
+            @Override
+            public SecurityContext get() {
+                if (context == null) {
+                    context = readContext(request);
+                    if (context == null) {
+                        context = SecurityContextHolder.createEmptyContext();
+                        generated = true;
+                    }
+                }
+                return context;
+            }
+
+            @Override
+            public boolean isGenerated() {
+                get();
+                return generated;
+            }
+        };
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            sessionTokens.writeUser(request, response, user);
+        } else if (sessionTokens.readUser(request) != null) {
+            // Logout
+            sessionTokens.clear(request, response);
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return sessionTokens.readUser(request) != null;
+    }
+
+    private SecurityContext readContext(HttpServletRequest request) {
+        AuthenticatedUser user = sessionTokens.readUser(request);
+        if (user == null) {
+            return null;
+        }
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+        return context;
+    }
+}
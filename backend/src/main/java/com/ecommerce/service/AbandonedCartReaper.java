@@ -0,0 +1,104 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes guest carts that have not changed for {@code cart.reaper.max-age}. Work is split into
+ * short transactions of at most {@code cart.reaper.batch-size} carts with a pause between them, and
+ * a run stops after {@code cart.reaper.max-batches-per-run}, so the reaper never holds many locks or
+ * saturates the connection pool; anything left over is picked up by the next run. The pauses block a
+ * scheduler thread, which is why {@code spring.task.scheduling.pool.size} gives every job its own
+ * (raise it when adding a scheduled job).
+ */
+@Component
+public class AbandonedCartReaper {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cart.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cart.reaper.max-age:30d}")
+    private Duration maxAge;
+
+    @Value("${cart.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cart.reaper.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${cart.reaper.pause-ms:250}")
+    private long pauseMs;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter deletedCarts;
+    private Counter deletedItems;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        deletedCarts = meterRegistry.counter("cart.reaper.deleted", "table", "carts");
+        deletedItems = meterRegistry.counter("cart.reaper.deleted", "table", "cart_items");
+        batchTimer = meterRegistry.timer("cart.reaper.batch");
+    }
+
+    @Scheduled(fixedDelayString = "${cart.reaper.interval-ms:900000}", initialDelayString = "${cart.reaper.initial-delay-ms:60000}")
+    public void reap() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int deleted = batchTimer.record(() -> deleteBatch(cutoff));
+            if (deleted < batchSize) {
+                return;
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int deleteBatch(LocalDateTime cutoff) {
+        int[] deleted = transactionTemplate.execute(status -> {
+            List<String> cartIds = cartRepository.lockStaleGuestCartIds(cutoff, batchSize);
+            if (cartIds.isEmpty()) {
+                return new int[] {0, 0};
+            }
+            int items = cartItemRepository.deleteByCartIdIn(cartIds);
+            return new int[] {cartRepository.deleteByIdIn(cartIds), items};
+        });
+        deletedCarts.increment(deleted[0]);
+        deletedItems.increment(deleted[1]);
+        return deleted[0];
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecommerce.service;
+
+/**
+ * Thrown when a cart held in memory could not be written to the database before code that works
+ * on the cart tables directly (such as a cart merge) needed it there.
+ */
+public class CartFlushException extends RuntimeException {
+    public CartFlushException(String message) {
+        super(message);
+    }
+}
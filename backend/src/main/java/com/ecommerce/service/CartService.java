@@ -3,6 +3,7 @@ package com.ecommerce.service;
 import com.ecommerce.dto.AddToCartRequest;
 import com.ecommerce.dto.CartDto;
 import com.ecommerce.dto.CartItemDto;
+import com.ecommerce.dto.CartOperation;
 import com.ecommerce.model.Cart;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Product;
@@ -11,20 +12,34 @@ import com.ecommerce.repository.CartItemRepository;
 import com.ecommerce.repository.CartRepository;
 import com.ecommerce.repository.ProductRepository;
 import com.ecommerce.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class CartService {
 
+    private static final int CART_LOCK_STRIPES = 64;
+    private static final int MAX_CHANGE_ATTEMPTS = 8;
+    private static final long CHANGE_BACKOFF_MILLIS = 10;
+
     @Autowired
     private CartRepository cartRepository;
 
@@ -37,118 +52,413 @@ public class CartService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${cart.batch.max-operations:100}")
+    private int maxBatchOperations;
+
+    // Reading a cart that does not exist returns an empty one; the row is created by the first change
+    @Value("${cart.lazy-create:true}")
+    private boolean lazyCreate;
+
+    // Present only with cart.store.mode=memory; cart calls are then served from memory
+    @Autowired(required = false)
+    private HotCartStore hotCartStore;
+
+    // Present only with stock.reservation.enabled=true; adding to a cart then reserves the stock
+    @Autowired(required = false)
+    private StockReservationService stockReservations;
+
+    // Cart calls are dispatched to the hot cart store before any transaction is opened, so in memory
+    // mode they hold no database connection. The database path runs in this template instead.
+    private TransactionTemplate transactionTemplate;
+
+    // With stock reservations, changes to one stored cart on this node queue here instead of failing
+    // each other's version check; across nodes the version check alone keeps reservation and cart in step
+    private final ReentrantLock[] cartLocks = new ReentrantLock[CART_LOCK_STRIPES];
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < cartLocks.length; i++) {
+            cartLocks[i] = new ReentrantLock();
+        }
+    }
+
     public CartDto getCart(String userId, String sessionId) {
+        if (lazyCreate) {
+            CartDto cart = null;
+            if (userId != null || sessionId != null) {
+                cart = hotCartStore != null
+                        ? hotCartStore.findCart(userId, sessionId)
+                        : findCart(userId, sessionId).map(this::mapToDto).orElse(null);
+            }
+            return cart != null ? holdReservedStock(cart) : emptyCart(userId, sessionId);
+        }
+        if (hotCartStore != null) {
+            return holdReservedStock(hotCartStore.getCart(userId, sessionId));
+        }
         Cart cart = findOrCreateCart(userId, sessionId);
-        return mapToDto(cart);
+        return holdReservedStock(mapToDto(cart));
+    }
+
+    /**
+     * With stock reservations, takes the stock of lines whose reservation expired again, and marks
+     * the lines whose stock is gone so the client can tell the buyer.
+     */
+    private CartDto holdReservedStock(CartDto cart) {
+        if (stockReservations == null || cart.getId() == null || cart.getItems().isEmpty()) {
+            return cart;
+        }
+        Map<String, Integer> quantities = new HashMap<>();
+        cart.getItems().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        Set<String> lapsed = stockReservations.holdAtLeast(cart.getId(), quantities);
+        cart.getItems().forEach(item -> item.setReservationLapsed(lapsed.contains(item.getProductId())));
+        return cart;
     }
 
-    @Transactional
     public CartDto addToCart(String userId, String sessionId, AddToCartRequest request) {
-        Cart cart = findOrCreateCart(userId, sessionId);
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (hotCartStore != null) {
+            return hotCartStore.addToCart(userId, sessionId, request);
+        }
+        CartOperation add = operation(CartOperation.Type.ADD, request.getProductId(), null, request.getQuantity());
+        return changeStoredCart(userId, sessionId, List.of(add), () -> addToStoredCart(userId, sessionId, request));
+    }
 
-        if (product.getStock() < request.getQuantity()) {
-            throw new RuntimeException("Insufficient stock");
+    public CartDto updateCartItem(String userId, String sessionId, String itemId, Integer quantity) {
+        if (hotCartStore != null) {
+            return hotCartStore.updateCartItem(userId, sessionId, itemId, quantity);
         }
+        CartOperation update = operation(CartOperation.Type.UPDATE, null, itemId, quantity);
+        return changeStoredCart(userId, sessionId, List.of(update), () -> updateStoredCartItem(userId, sessionId, itemId, quantity));
+    }
 
-        List<CartItem> items = cartItemRepository.findByCartId(cart.getId());
-        Optional<CartItem> existingItem = items.stream()
-                .filter(item -> item.getProduct().getId().equals(request.getProductId()))
-                .findFirst();
+    public CartDto removeFromCart(String userId, String sessionId, String itemId) {
+        if (hotCartStore != null) {
+            return hotCartStore.removeFromCart(userId, sessionId, itemId);
+        }
+        CartOperation remove = operation(CartOperation.Type.REMOVE, null, itemId, null);
+        return changeStoredCart(userId, sessionId, List.of(remove), () -> removeFromStoredCart(userId, sessionId, itemId));
+    }
 
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + request.getQuantity());
-            cartItemRepository.save(item);
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(request.getQuantity());
-            newItem.setPrice(product.getPrice());
-            // Variant logic can be added here if needed
-            cartItemRepository.save(newItem);
+    /**
+     * Applies the operations in order, all or nothing, and returns the resulting cart. Products of
+     * every ADD are loaded with one query.
+     */
+    public CartDto applyBatch(String userId, String sessionId, List<CartOperation> operations) {
+        validateOperations(operations);
+        if (hotCartStore != null) {
+            return hotCartStore.applyBatch(userId, sessionId, operations);
         }
+        return changeStoredCart(userId, sessionId, operations, () -> applyBatchToStoredCart(userId, sessionId, operations));
+    }
 
-        return mapToDto(cart);
+    public void clearCart(String userId, String sessionId) {
+        if (hotCartStore != null) {
+            hotCartStore.clearCart(userId, sessionId);
+            return;
+        }
+        if (stockReservations == null) {
+            transactionTemplate.executeWithoutResult(status -> clearStoredCart(userId, sessionId));
+            return;
+        }
+        ReentrantLock lock = cartLock(userId, sessionId);
+        lock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> clearStoredCart(userId, sessionId));
+        } finally {
+            lock.unlock();
+        }
     }
 
-    @Transactional
-    public CartDto updateCartItem(String userId, String sessionId, String itemId, Integer quantity) {
-        Cart cart = findOrCreateCart(userId, sessionId);
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Item not found"));
-        
-        if (!item.getCart().getId().equals(cart.getId())) {
-             throw new RuntimeException("Item does not belong to this cart");
+    /**
+     * Runs {@code change} on the stored cart in a transaction. With stock reservations, the quantities
+     * the operations lead to are reserved first, outside any transaction, because taking stock from the
+     * database needs a connection of its own. The change then only commits if the cart's version is
+     * still the one its quantities were read at; if another change (on any node) got there first, the
+     * reservations are put back and the whole step is retried from the new quantities.
+     */
+    private CartDto changeStoredCart(String userId, String sessionId, List<CartOperation> operations, Supplier<CartDto> change) {
+        if (stockReservations == null) {
+            return transactionTemplate.execute(status -> change.get());
         }
+        ReentrantLock lock = cartLock(userId, sessionId);
+        lock.lock();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                StoredCart stored = readStoredCart(userId, sessionId, operations);
+                Map<String, Integer> target = targetQuantities(stored, operations);
+                stockReservations.setReservedAll(stored.cartId(), stored.quantities(), target);
+                try {
+                    return transactionTemplate.execute(status -> {
+                        if (cartRepository.claimVersion(stored.cartId(), stored.version()) == 0) {
+                            throw new ConcurrentCartChangeException("The cart was changed by another request, please retry");
+                        }
+                        return change.get();
+                    });
+                } catch (RuntimeException e) {
+                    try {
+                        stockReservations.setReservedAll(stored.cartId(), target, stored.quantities());
+                    } catch (RuntimeException ignored) {
+                        // The reservation is corrected on the cart's next change or expires
+                    }
+                    if (!(e instanceof ConcurrentCartChangeException) || attempt == MAX_CHANGE_ATTEMPTS) {
+                        throw e;
+                    }
+                    backOff(attempt);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        if (quantity <= 0) {
-            cartItemRepository.delete(item);
-        } else {
-            item.setQuantity(quantity);
-            cartItemRepository.save(item);
+    /** Waits a random, growing time before retrying, so requests that collided on a cart do not collide again. */
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, CHANGE_BACKOFF_MILLIS * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentCartChangeException("The cart was changed by another request, please retry");
         }
+    }
 
-        return mapToDto(cart);
+    /** The lock stripe of the cart owned by the user, or by the session if there is no user. */
+    private ReentrantLock cartLock(String userId, String sessionId) {
+        return cartLocks[cartLockStripe(userId, sessionId)];
     }
 
-    @Transactional
-    public CartDto removeFromCart(String userId, String sessionId, String itemId) {
+    private static int cartLockStripe(String userId, String sessionId) {
+        String owner = userId != null ? "user:" + userId : "session:" + sessionId;
+        return Math.floorMod(owner.hashCode(), CART_LOCK_STRIPES);
+    }
+
+    private StoredCart readStoredCart(String userId, String sessionId, List<CartOperation> operations) {
+        try {
+            return transactionTemplate.execute(status -> storedCart(userId, sessionId, operations));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the cart at the same time; the unique owner constraint kept only theirs
+            return transactionTemplate.execute(status -> storedCart(userId, sessionId, operations));
+        }
+    }
+
+    /** The cart's ID, item products and quantities per product; fails if an ADD names an unknown product. */
+    private StoredCart storedCart(String userId, String sessionId, List<CartOperation> operations) {
+        Set<String> added = operations.stream()
+                .filter(op -> op.getType() == CartOperation.Type.ADD)
+                .map(CartOperation::getProductId)
+                .collect(Collectors.toSet());
+        if (!added.isEmpty() && productRepository.countByIdIn(added) < added.size()) {
+            throw new RuntimeException("Product not found");
+        }
         Cart cart = findOrCreateCart(userId, sessionId);
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Item not found"));
+        Map<String, String> itemProducts = new HashMap<>();
+        Map<String, Integer> quantities = new HashMap<>();
+        for (CartItem item : cartItemRepository.findByCartId(cart.getId())) {
+            itemProducts.put(item.getId(), item.getProduct().getId());
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return new StoredCart(cart.getId(), cart.getVersion(), itemProducts, quantities);
+    }
 
-        if (!item.getCart().getId().equals(cart.getId())) {
-            throw new RuntimeException("Item does not belong to this cart");
+    private static Map<String, Integer> targetQuantities(StoredCart stored, List<CartOperation> operations) {
+        Map<String, String> itemProducts = new HashMap<>(stored.itemProducts());
+        Map<String, Integer> target = new HashMap<>(stored.quantities());
+        for (CartOperation op : operations) {
+            if (op.getType() == CartOperation.Type.ADD) {
+                target.merge(op.getProductId(), op.getQuantity(), Integer::sum);
+                continue;
+            }
+            String productId = itemProducts.get(op.getItemId());
+            if (productId == null) {
+                throw new RuntimeException("Item not found");
+            }
+            if (op.getType() == CartOperation.Type.REMOVE || op.getQuantity() <= 0) {
+                itemProducts.remove(op.getItemId());
+                target.put(productId, 0);
+            } else {
+                target.put(productId, op.getQuantity());
+            }
         }
+        return target;
+    }
 
-        cartItemRepository.delete(item);
-        return mapToDto(cart);
+    private static CartOperation operation(CartOperation.Type type, String productId, String itemId, Integer quantity) {
+        CartOperation op = new CartOperation();
+        op.setType(type);
+        op.setProductId(productId);
+        op.setItemId(itemId);
+        op.setQuantity(quantity);
+        return op;
     }
 
-    @Transactional
-    public void clearCart(String userId, String sessionId) {
+    private CartDto addToStoredCart(String userId, String sessionId, AddToCartRequest request) {
+        Cart cart = findOrCreateCart(userId, sessionId);
+        List<CartItem> items = loadItems(cart);
+        Product product = findByProduct(items, request.getProductId())
+                .map(CartItem::getProduct)
+                .or(() -> productRepository.findWithImagesById(request.getProductId()))
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+
+        addItem(cart, items, product, request.getQuantity());
+        cart.setUpdatedAt(LocalDateTime.now());
+        return mapToDto(cart, items);
+    }
+
+    private CartDto updateStoredCartItem(String userId, String sessionId, String itemId, Integer quantity) {
+        Cart cart = findOrCreateCart(userId, sessionId);
+        List<CartItem> items = loadItems(cart);
+        updateItem(items, itemId, quantity);
+        cart.setUpdatedAt(LocalDateTime.now());
+        return mapToDto(cart, items);
+    }
+
+    private CartDto removeFromStoredCart(String userId, String sessionId, String itemId) {
         Cart cart = findOrCreateCart(userId, sessionId);
+        List<CartItem> items = loadItems(cart);
+        removeItem(items, itemId);
+        cart.setUpdatedAt(LocalDateTime.now());
+        return mapToDto(cart, items);
+    }
+
+    private CartDto applyBatchToStoredCart(String userId, String sessionId, List<CartOperation> operations) {
+        Cart cart = findOrCreateCart(userId, sessionId);
+        List<CartItem> items = loadItems(cart);
+
+        Map<String, Product> products = new HashMap<>();
+        items.forEach(item -> products.put(item.getProduct().getId(), item.getProduct()));
+        Set<String> missing = operations.stream()
+                .filter(op -> op.getType() == CartOperation.Type.ADD)
+                .map(CartOperation::getProductId)
+                .filter(id -> !products.containsKey(id))
+                .collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            productRepository.findWithImagesByIdIn(missing).forEach(p -> products.put(p.getId(), p));
+        }
+
+        for (CartOperation op : operations) {
+            switch (op.getType()) {
+                case ADD -> {
+                    Product product = products.get(op.getProductId());
+                    if (product == null) {
+                        throw new RuntimeException("Product not found");
+                    }
+                    addItem(cart, items, product, op.getQuantity());
+                }
+                case UPDATE -> updateItem(items, op.getItemId(), op.getQuantity());
+                case REMOVE -> removeItem(items, op.getItemId());
+            }
+        }
+        cart.setUpdatedAt(LocalDateTime.now());
+        return mapToDto(cart, items);
+    }
+
+    private void clearStoredCart(String userId, String sessionId) {
+        Optional<Cart> existing = findCart(userId, sessionId);
+        if (existing.isEmpty()) {
+            return;
+        }
+        Cart cart = existing.get();
         cartItemRepository.deleteByCartId(cart.getId());
+        cart.setUpdatedAt(LocalDateTime.now());
+        if (stockReservations != null) {
+            cartRepository.bumpVersion(cart.getId());
+            stockReservations.releaseAll(cart.getId());
+        }
     }
 
+    /**
+     * Moves the guest cart of {@code sessionId} into the user's cart with a fixed number of
+     * set-based statements, whatever the number of items.
+     */
     public void mergeCarts(String sessionId, String userId) {
+        if (hotCartStore != null) {
+            // The merge works on the tables, so write both carts out first. This happens before the
+            // merge transaction opens, so the flushes never need a second connection. If a cart can't
+            // be written, evict throws and the merge doesn't run: merging the older rows would let the
+            // queued write put the moved items back under the guest cart later.
+            hotCartStore.evict(null, sessionId);
+            hotCartStore.evict(userId, null);
+        }
+        if (stockReservations == null) {
+            transactionTemplate.executeWithoutResult(status -> mergeStoredCarts(sessionId, userId));
+            return;
+        }
+        // Take both carts' locks in stripe order, so two merges can't wait on each other
+        int guestStripe = cartLockStripe(null, sessionId);
+        int userStripe = cartLockStripe(userId, null);
+        ReentrantLock first = cartLocks[Math.min(guestStripe, userStripe)];
+        ReentrantLock second = cartLocks[Math.max(guestStripe, userStripe)];
+        first.lock();
+        second.lock();
+        try {
+            MergedCarts merged = transactionTemplate.execute(status -> mergeStoredCarts(sessionId, userId));
+            if (merged != null) {
+                // The user's lines now hold the guest quantities too, so the guest reservations go with them
+                stockReservations.transferAll(merged.guestCartId(), merged.userCartId());
+            }
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    /**
+     * Returns the two carts if the guest cart's items were moved into an existing user cart, or null
+     * if there was nothing to move or the guest cart simply became the user's cart.
+     */
+    private MergedCarts mergeStoredCarts(String sessionId, String userId) {
         Optional<Cart> sessionCart = cartRepository.findBySessionId(sessionId);
-        if (sessionCart.isPresent()) {
-             Cart userCart = findOrCreateCart(userId, null);
-             List<CartItem> sessionItems = cartItemRepository.findByCartId(sessionCart.get().getId());
-             
-             for (CartItem sessionItem : sessionItems) {
-                 // Check if user cart already has this product
-                 List<CartItem> userItems = cartItemRepository.findByCartId(userCart.getId());
-                 Optional<CartItem> existingUserItem = userItems.stream()
-                         .filter(ui -> ui.getProduct().getId().equals(sessionItem.getProduct().getId()))
-                         .findFirst();
-
-                 if (existingUserItem.isPresent()) {
-                     CartItem ui = existingUserItem.get();
-                     ui.setQuantity(ui.getQuantity() + sessionItem.getQuantity());
-                     cartItemRepository.save(ui);
-                 } else {
-                     sessionItem.setCart(userCart);
-                     cartItemRepository.save(sessionItem);
-                 }
-             }
-             // Delete session cart after merge
-             cartRepository.delete(sessionCart.get());
+        if (sessionCart.isEmpty()) {
+            return null;
+        }
+
+        Cart guestCart = sessionCart.get();
+        Optional<Cart> userCart = cartRepository.findByUserId(userId);
+        if (userCart.isEmpty()) {
+            // No cart yet: the guest cart becomes the user's cart, keeping its ID and reservations
+            guestCart.setUser(userRepository.getReferenceById(userId));
+            guestCart.setSessionId(null);
+            guestCart.setUpdatedAt(LocalDateTime.now());
+            if (stockReservations != null) {
+                cartRepository.bumpVersion(guestCart.getId());
+            }
+            return null;
         }
+
+        String userCartId = userCart.get().getId();
+        cartItemRepository.addMatchingQuantities(guestCart.getId(), userCartId);
+        cartItemRepository.moveUnmatchedItems(guestCart.getId(), userCartId);
+        // Delete session cart after merge
+        cartItemRepository.deleteByCartId(guestCart.getId());
+        cartRepository.delete(guestCart);
+        userCart.get().setUpdatedAt(LocalDateTime.now());
+        if (stockReservations != null) {
+            cartRepository.bumpVersion(userCartId);
+        }
+        return new MergedCarts(guestCart.getId(), userCartId);
+    }
+
+    private Optional<Cart> findCart(String userId, String sessionId) {
+        if (userId != null) {
+            return cartRepository.findByUserId(userId);
+        }
+        return sessionId != null ? cartRepository.findBySessionId(sessionId) : Optional.empty();
     }
 
     private Cart findOrCreateCart(String userId, String sessionId) {
+        if (userId == null && sessionId == null) {
+            // A null session ID would match every user's cart (session_id IS NULL)
+            throw new IllegalStateException("A cart needs a user or a session");
+        }
         if (userId != null) {
             return cartRepository.findByUserId(userId)
                     .orElseGet(() -> {
                         Cart cart = new Cart();
                         cart.setUser(userRepository.findById(userId).orElseThrow());
                         cart.setUpdatedAt(LocalDateTime.now());
-                        return cartRepository.save(cart);
+                        return cartRepository.saveAndFlush(cart);
                     });
         } else {
             return cartRepository.findBySessionId(sessionId)
@@ -156,12 +466,102 @@ public class CartService {
                         Cart cart = new Cart();
                         cart.setSessionId(sessionId);
                         cart.setUpdatedAt(LocalDateTime.now());
-                        return cartRepository.save(cart);
+                        return cartRepository.saveAndFlush(cart);
                     });
         }
     }
 
+    /**
+     * Items of the cart with their products and images, loaded in one statement. Mutations work on
+     * this list so the response is built without reading the items again.
+     */
+    private List<CartItem> loadItems(Cart cart) {
+        return new ArrayList<>(cartItemRepository.findCartView(cart.getId()));
+    }
+
+    private void addItem(Cart cart, List<CartItem> items, Product product, Integer quantity) {
+        Optional<CartItem> existingItem = findByProduct(items, product.getId());
+        // With reservations the stock was already reserved by changeStoredCart
+        if (stockReservations == null && product.getStock() < quantity) {
+            throw new RuntimeException("Insufficient stock");
+        }
+
+        if (existingItem.isPresent()) {
+            CartItem item = existingItem.get();
+            item.setQuantity(item.getQuantity() + quantity);
+            cartItemRepository.save(item);
+        } else {
+            CartItem newItem = new CartItem();
+            newItem.setCart(cart);
+            newItem.setProduct(product);
+            newItem.setQuantity(quantity);
+            newItem.setPrice(product.getPrice());
+            // Variant logic can be added here if needed
+            items.add(cartItemRepository.save(newItem));
+        }
+    }
+
+    private void updateItem(List<CartItem> items, String itemId, Integer quantity) {
+        CartItem item = findItem(items, itemId);
+        if (quantity <= 0) {
+            cartItemRepository.delete(item);
+            items.remove(item);
+        } else {
+            item.setQuantity(quantity);
+            cartItemRepository.save(item);
+        }
+    }
+
+    private void removeItem(List<CartItem> items, String itemId) {
+        CartItem item = findItem(items, itemId);
+        cartItemRepository.delete(item);
+        items.remove(item);
+    }
+
+    private void validateOperations(List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new InvalidCartOperationException("No cart operations given");
+        }
+        if (operations.size() > maxBatchOperations) {
+            throw new InvalidCartOperationException("At most " + maxBatchOperations + " cart operations are allowed per request");
+        }
+        for (CartOperation op : operations) {
+            if (op.getType() == null) {
+                throw new InvalidCartOperationException("Cart operation type is required");
+            }
+            boolean valid = switch (op.getType()) {
+                case ADD -> op.getProductId() != null && op.getQuantity() != null && op.getQuantity() > 0;
+                case UPDATE -> op.getItemId() != null && op.getQuantity() != null;
+                case REMOVE -> op.getItemId() != null;
+            };
+            if (!valid) {
+                throw new InvalidCartOperationException("Invalid " + op.getType() + " cart operation");
+            }
+            if (op.getVariantId() != null) {
+                // Neither cart store keeps variants yet; rejecting beats silently adding the base product
+                throw new InvalidCartOperationException("Product variants are not supported in cart operations");
+            }
+        }
+    }
+
+    private Optional<CartItem> findByProduct(List<CartItem> items, String productId) {
+        return items.stream()
+                .filter(item -> item.getProduct().getId().equals(productId))
+                .findFirst();
+    }
+
+    private CartItem findItem(List<CartItem> items, String itemId) {
+        return items.stream()
+                .filter(item -> item.getId().equals(itemId))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Item not found"));
+    }
+
     private CartDto mapToDto(Cart cart) {
+        return mapToDto(cart, loadItems(cart));
+    }
+
+    CartDto mapToDto(Cart cart, List<CartItem> items) {
         CartDto dto = new CartDto();
         dto.setId(cart.getId());
         dto.setSessionId(cart.getSessionId());
@@ -169,7 +569,6 @@ public class CartService {
             dto.setUserId(cart.getUser().getId());
         }
 
-        List<CartItem> items = cartItemRepository.findByCartId(cart.getId());
         List<CartItemDto> itemDtos = items.stream().map(this::mapItemToDto).collect(Collectors.toList());
         dto.setItems(itemDtos);
 
@@ -181,6 +580,21 @@ public class CartService {
         return dto;
     }
 
+    private record StoredCart(String cartId, long version, Map<String, String> itemProducts, Map<String, Integer> quantities) {
+    }
+
+    private record MergedCarts(String guestCartId, String userCartId) {
+    }
+
+    private CartDto emptyCart(String userId, String sessionId) {
+        CartDto dto = new CartDto();
+        dto.setUserId(userId);
+        dto.setSessionId(userId != null ? null : sessionId);
+        dto.setItems(new ArrayList<>());
+        dto.setTotal(BigDecimal.ZERO);
+        return dto;
+    }
+
     private CartItemDto mapItemToDto(CartItem item) {
         CartItemDto dto = new CartItemDto();
         dto.setId(item.getId());
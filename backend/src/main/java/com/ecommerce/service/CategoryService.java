@@ -17,19 +17,26 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
-    @Cacheable("categories")
+    @Autowired
+    private CategoryTree categoryTree;
+
+    @Cacheable(value = "categories", sync = true)
     public List<CategoryDto> getAllCategories() {
         return categoryRepository.findAll().stream()
-                .map(this::mapToDto)
+                .map(CategoryService::toDto)
                 .collect(Collectors.toList());
     }
 
-    @Cacheable(value = "category", key = "#slug")
+    @Cacheable(value = "category", sync = true, key = "#slug")
     public Optional<CategoryDto> getCategoryBySlug(String slug) {
-        return categoryRepository.findBySlug(slug).map(this::mapToDto);
+        return categoryRepository.findBySlug(slug).map(CategoryService::toDto);
+    }
+
+    public List<CategoryDto> getBreadcrumbs(String slug) {
+        return categoryTree.breadcrumbs(slug);
     }
 
-    private CategoryDto mapToDto(Category category) {
+    static CategoryDto toDto(Category category) {
         CategoryDto dto = new CategoryDto();
         dto.setId(category.getId());
         dto.setName(category.getName());
@@ -0,0 +1,143 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CategoryDto;
+import com.ecommerce.event.CategoryChangedEvent;
+import com.ecommerce.repository.CategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of the category hierarchy built from {@code Category.parentId}. Descendant sets
+ * and ancestor paths are precomputed, so subtree filters and breadcrumbs need no recursive queries.
+ * Rebuilt lazily, by one caller at a time, after any category change on this node, and once older
+ * than {@code catalog.category-tree.max-age} so changes made on other nodes show up too.
+ */
+@Component
+public class CategoryTree {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Value("${catalog.category-tree.max-age:5m}")
+    private Duration maxAge;
+
+    // Bumped on every category change; a snapshot built for an older generation is never used
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * IDs of the category and all of its descendants. An unknown ID is returned as-is, so filtering
+     * by it behaves like the exact match it used to be.
+     */
+    public Set<String> subtreeIds(String categoryId) {
+        return snapshot().descendants().getOrDefault(categoryId, Set.of(categoryId));
+    }
+
+    /**
+     * Path from the root category down to the category with the given slug, or an empty list if there is none.
+     */
+    public List<CategoryDto> breadcrumbs(String slug) {
+        Snapshot current = snapshot();
+        CategoryDto category = current.bySlug().get(slug);
+        if (category == null) {
+            return List.of();
+        }
+
+        List<CategoryDto> path = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        while (category != null && seen.add(category.getId())) {
+            path.add(category);
+            category = category.getParentId() == null ? null : current.byId().get(category.getParentId());
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The current snapshot. An outdated one is rebuilt by a single caller; callers arriving during
+     * that rebuild keep using the previous snapshot, and only wait when there is none yet.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (!isOutdated(current)) {
+            return current;
+        }
+        if (current == null) {
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            return current;
+        }
+        try {
+            current = snapshot;
+            if (isOutdated(current)) {
+                current = build(generation.get());
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private boolean isOutdated(Snapshot current) {
+        return current == null || current.generation() != generation.get()
+                || System.nanoTime() - current.builtAt() > maxAge.toNanos();
+    }
+
+    private Snapshot build(long generation) {
+        long builtAt = System.nanoTime();
+        Map<String, CategoryDto> byId = new HashMap<>();
+        Map<String, CategoryDto> bySlug = new HashMap<>();
+        Map<String, List<String>> children = new HashMap<>();
+        categoryRepository.findAll().stream().map(CategoryService::toDto).forEach(category -> {
+            byId.put(category.getId(), category);
+            bySlug.put(category.getSlug(), category);
+            if (category.getParentId() != null) {
+                children.computeIfAbsent(category.getParentId(), id -> new ArrayList<>()).add(category.getId());
+            }
+        });
+
+        Map<String, Set<String>> descendants = new HashMap<>();
+        for (String id : byId.keySet()) {
+            Set<String> subtree = new LinkedHashSet<>();
+            collect(id, children, subtree);
+            descendants.put(id, Collections.unmodifiableSet(subtree));
+        }
+        return new Snapshot(generation, builtAt, byId, bySlug, descendants);
+    }
+
+    private void collect(String id, Map<String, List<String>> children, Set<String> subtree) {
+        if (!subtree.add(id)) {
+            return;
+        }
+        for (String child : children.getOrDefault(id, List.of())) {
+            collect(child, children, subtree);
+        }
+    }
+
+    private record Snapshot(long generation, long builtAt, Map<String, CategoryDto> byId, Map<String, CategoryDto> bySlug,
+                            Map<String, Set<String>> descendants) {
+    }
+}
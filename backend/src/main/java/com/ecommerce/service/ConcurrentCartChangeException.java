@@ -0,0 +1,11 @@
+package com.ecommerce.service;
+
+/**
+ * Thrown when a cart change kept losing to concurrent changes of the same cart, so its stock
+ * reservation could not be matched to the cart it was applied to.
+ */
+public class ConcurrentCartChangeException extends RuntimeException {
+    public ConcurrentCartChangeException(String message) {
+        super(message);
+    }
+}
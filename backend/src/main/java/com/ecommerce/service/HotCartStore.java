@@ -0,0 +1,666 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AddToCartRequest;
+import com.ecommerce.dto.CartDto;
+import com.ecommerce.dto.CartItemDto;
+import com.ecommerce.dto.CartOperation;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Cart;
+import com.ecommerce.model.CartItem;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.CartItemRepository;
+import com.ecommerce.repository.CartRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind cart storage, enabled with {@code cart.store.mode=memory}. Active carts are kept in a
+ * bounded in-process cache and every cart call works on that copy under the cart's own lock, so it
+ * never waits on the database. Changed carts are upserted into {@code carts}/{@code cart_items} in
+ * batches every {@code cart.store.flush-interval-ms}, when they are evicted and on shutdown: a crash
+ * loses at most the changes made since the last flush.
+ *
+ * <p>Carts are only coherent while each one is served by a single application node.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "memory")
+public class HotCartStore {
+
+    private static final int EVICT_FLUSH_ATTEMPTS = 3;
+
+    private static final String UPSERT_CART = "INSERT INTO carts (id, user_id, session_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (id) DO UPDATE SET updated_at = EXCLUDED.updated_at";
+    private static final String UPSERT_ITEM = "INSERT INTO cart_items (id, cart_id, product_id, variant_id, quantity, price) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (id) DO UPDATE SET quantity = EXCLUDED.quantity, price = EXCLUDED.price";
+    private static final String DELETE_ITEM = "DELETE FROM cart_items WHERE id = ?";
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private StockReservationService stockReservations;
+
+    @Value("${cart.store.max-carts:100000}")
+    private long maxCarts;
+
+    @Value("${cart.store.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+
+    @Value("${cart.store.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    // Prices and stock used by cart changes; the expiry bounds how long a change made on another node
+    // or by a bulk update goes unseen
+    @Value("${cart.store.products.spec:maximumSize=10000,expireAfterWrite=1m}")
+    private String productsSpec;
+
+    private Cache<String, HotCart> carts;
+
+    // Price, stock and display data of products added to carts; dropped whenever the product changes
+    // on this node, and expired so changes made on other nodes or by bulk updates are picked up too
+    private Cache<String, CartProduct> products;
+
+    // Changed carts by owner key. They stay here until written, so an evicted cart is never lost or
+    // reloaded stale from the database.
+    private final Map<String, HotCart> dirty = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private TransactionTemplate transactionTemplate;
+    private Counter flushedCarts;
+    private Counter failedFlushes;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // A flush is its own unit of work, also when a caller's transaction is active
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleTimeoutMinutes))
+                .evictionListener((String key, HotCart cart, RemovalCause cause) -> cart.detach())
+                .removalListener((String key, HotCart cart, RemovalCause cause) -> {
+                    if (cause.wasEvicted() && cart != null && cart.dirty) {
+                        flush(List.of(cart));
+                    }
+                })
+                .recordStats()
+                .build();
+        products = Caffeine.from(productsSpec).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, "hotCarts");
+        Gauge.builder("cart.store.dirty", dirty, Map::size).register(meterRegistry);
+        flushedCarts = meterRegistry.counter("cart.store.flushed");
+        failedFlushes = meterRegistry.counter("cart.store.flush.failures");
+    }
+
+    public CartDto getCart(String userId, String sessionId) {
+        return withCart(userId, sessionId, this::toDto);
+    }
+
+    /** The owner's cart, or null if there is none; unlike {@link #getCart} this never creates one. */
+    public CartDto findCart(String userId, String sessionId) {
+        return withCart(userId, sessionId, false, this::toDto);
+    }
+
+    public CartDto addToCart(String userId, String sessionId, AddToCartRequest request) {
+        CartProduct product = products.get(request.getProductId(), this::loadProduct);
+        if (product == null) {
+            throw new RuntimeException("Product not found");
+        }
+        if (stockReservations == null && product.stock() < request.getQuantity()) {
+            throw new RuntimeException("Insufficient stock");
+        }
+
+        return withCart(userId, sessionId, cart -> {
+            if (stockReservations != null) {
+                stockReservations.setReserved(cart.id, product.id(), null, quantityOf(cart, product.id()) + request.getQuantity());
+            }
+            addItem(cart, product, request.getQuantity());
+            markDirty(cart);
+            return toDto(cart);
+        });
+    }
+
+    public CartDto updateCartItem(String userId, String sessionId, String itemId, Integer quantity) {
+        return withCart(userId, sessionId, cart -> {
+            HotCartItem item = cart.findItem(itemId);
+            if (stockReservations != null) {
+                stockReservations.setReserved(cart.id, item.productId, null, quantity);
+            }
+            if (quantity <= 0) {
+                cart.remove(item);
+            } else {
+                item.quantity = quantity;
+            }
+            markDirty(cart);
+            return toDto(cart);
+        });
+    }
+
+    public CartDto removeFromCart(String userId, String sessionId, String itemId) {
+        return withCart(userId, sessionId, cart -> {
+            HotCartItem item = cart.findItem(itemId);
+            if (stockReservations != null) {
+                stockReservations.setReserved(cart.id, item.productId, null, 0);
+            }
+            cart.remove(item);
+            markDirty(cart);
+            return toDto(cart);
+        });
+    }
+
+    /**
+     * Applies already validated operations in order. Every operation is checked before the first
+     * one is applied, so a failing batch leaves the cart untouched.
+     */
+    public CartDto applyBatch(String userId, String sessionId, List<CartOperation> operations) {
+        Set<String> productIds = operations.stream()
+                .filter(op -> op.getType() == CartOperation.Type.ADD)
+                .map(CartOperation::getProductId)
+                .collect(Collectors.toSet());
+        Map<String, CartProduct> found = products.getAll(productIds, this::loadProducts);
+        for (CartOperation op : operations) {
+            if (op.getType() == CartOperation.Type.ADD) {
+                CartProduct product = found.get(op.getProductId());
+                if (product == null) {
+                    throw new RuntimeException("Product not found");
+                }
+                if (stockReservations == null && product.stock() < op.getQuantity()) {
+                    throw new RuntimeException("Insufficient stock");
+                }
+            }
+        }
+
+        return withCart(userId, sessionId, cart -> {
+            Map<String, String> itemProducts = new HashMap<>();
+            Map<String, Integer> quantities = new HashMap<>();
+            for (HotCartItem item : cart.items) {
+                itemProducts.put(item.id, item.productId);
+                quantities.merge(item.productId, item.quantity, Integer::sum);
+            }
+            Map<String, Integer> newQuantities = new HashMap<>(quantities);
+            for (CartOperation op : operations) {
+                if (op.getType() == CartOperation.Type.ADD) {
+                    newQuantities.merge(op.getProductId(), op.getQuantity(), Integer::sum);
+                    continue;
+                }
+                String productId = itemProducts.get(op.getItemId());
+                if (productId == null) {
+                    throw new RuntimeException("Item not found");
+                }
+                if (op.getType() == CartOperation.Type.REMOVE || op.getQuantity() <= 0) {
+                    itemProducts.remove(op.getItemId());
+                    newQuantities.put(productId, 0);
+                } else {
+                    newQuantities.put(productId, op.getQuantity());
+                }
+            }
+            if (stockReservations != null) {
+                stockReservations.setReservedAll(cart.id, quantities, newQuantities);
+            }
+
+            for (CartOperation op : operations) {
+                switch (op.getType()) {
+                    case ADD -> addItem(cart, found.get(op.getProductId()), op.getQuantity());
+                    case UPDATE -> {
+                        HotCartItem item = cart.findItem(op.getItemId());
+                        if (op.getQuantity() <= 0) {
+                            cart.remove(item);
+                        } else {
+                            item.quantity = op.getQuantity();
+                        }
+                    }
+                    case REMOVE -> cart.remove(cart.findItem(op.getItemId()));
+                }
+            }
+            markDirty(cart);
+            return toDto(cart);
+        });
+    }
+
+    public void clearCart(String userId, String sessionId) {
+        withCart(userId, sessionId, false, cart -> {
+            if (stockReservations != null) {
+                stockReservations.releaseAll(cart.id);
+            }
+            new ArrayList<>(cart.items).forEach(cart::remove);
+            markDirty(cart);
+            return null;
+        });
+    }
+
+    /**
+     * Writes the cart's pending changes and drops it from memory, so code working on the tables
+     * directly sees its current state and the next cart call reloads it.
+     *
+     * @throws CartFlushException if the changes could not be written; they stay queued for the next
+     *                            flush, so the tables do not show the cart's current state yet
+     */
+    public void evict(String userId, String sessionId) {
+        String key = ownerKey(userId, sessionId);
+        HotCart cart = Optional.ofNullable(carts.getIfPresent(key)).orElseGet(() -> dirty.get(key));
+        if (cart == null) {
+            return;
+        }
+        carts.invalidate(key);
+        cart.detach();
+        for (int attempt = 1; !flush(List.of(cart)); attempt++) {
+            if (attempt == EVICT_FLUSH_ATTEMPTS) {
+                throw new CartFlushException("The cart could not be saved, please retry");
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        products.invalidate(event.getProduct().getId());
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:1000}")
+    public void flushDirty() {
+        flush(new ArrayList<>(dirty.values()));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirty();
+    }
+
+    private <T> T withCart(String userId, String sessionId, Function<HotCart, T> action) {
+        return withCart(userId, sessionId, true, action);
+    }
+
+    private <T> T withCart(String userId, String sessionId, boolean create, Function<HotCart, T> action) {
+        if (userId == null && sessionId == null) {
+            throw new IllegalStateException("A cart needs a user or a session");
+        }
+        String key = ownerKey(userId, sessionId);
+        while (true) {
+            HotCart cart = carts.get(key, k -> load(k, userId, sessionId, create));
+            if (cart == null) {
+                return null;
+            }
+            cart.lock.lock();
+            try {
+                if (!cart.detached) {
+                    return action.apply(cart);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+            // Evicted after we looked it up: drop the stale mapping if still there and load again
+            carts.asMap().remove(key, cart);
+        }
+    }
+
+    private HotCart load(String key, String userId, String sessionId, boolean create) {
+        HotCart pending = dirty.get(key);
+        if (pending != null) {
+            pending.attach();
+            return pending;
+        }
+
+        Optional<Cart> stored = userId != null
+                ? cartRepository.findByUserId(userId)
+                : cartRepository.findBySessionId(sessionId);
+        if (stored.isPresent()) {
+            Cart c = stored.get();
+            HotCart cart = new HotCart(key, c.getId(), userId, c.getSessionId(), c.getCreatedAt(), c.getUpdatedAt());
+            for (CartItem item : cartItemRepository.findCartView(c.getId())) {
+                cart.items.add(HotCartItem.of(item));
+            }
+            return cart;
+        }
+        if (!create) {
+            return null;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        HotCart cart = new HotCart(key, UUID.randomUUID().toString(), userId, userId != null ? null : sessionId, now, now);
+        markDirty(cart);
+        return cart;
+    }
+
+    private CartProduct loadProduct(String productId) {
+        return productRepository.findWithImagesById(productId)
+                .map(HotCartStore::toCartProduct)
+                .orElse(null);
+    }
+
+    private Map<String, CartProduct> loadProducts(Set<? extends String> productIds) {
+        Map<String, CartProduct> loaded = new HashMap<>();
+        for (Product p : productRepository.findWithImagesByIdIn(new ArrayList<>(productIds))) {
+            loaded.put(p.getId(), toCartProduct(p));
+        }
+        return loaded;
+    }
+
+    private static CartProduct toCartProduct(Product p) {
+        return new CartProduct(p.getId(), p.getName(), p.getImages().isEmpty() ? null : p.getImages().get(0),
+                p.getPrice(), p.getStock());
+    }
+
+    private static int quantityOf(HotCart cart, String productId) {
+        return cart.items.stream()
+                .filter(item -> item.productId.equals(productId))
+                .mapToInt(item -> item.quantity)
+                .sum();
+    }
+
+    private static void addItem(HotCart cart, CartProduct product, int quantity) {
+        Optional<HotCartItem> existingItem = cart.items.stream()
+                .filter(item -> item.productId.equals(product.id()))
+                .findFirst();
+        if (existingItem.isPresent()) {
+            existingItem.get().quantity += quantity;
+        } else {
+            cart.items.add(new HotCartItem(UUID.randomUUID().toString(), product.id(), null,
+                    product.name(), product.image(), quantity, product.price()));
+        }
+    }
+
+    private void markDirty(HotCart cart) {
+        cart.updatedAt = LocalDateTime.now();
+        cart.dirty = true;
+        dirty.put(cart.key, cart);
+    }
+
+    /** Writes the carts' pending changes; false if some of them failed and stay queued. */
+    private boolean flush(Collection<HotCart> pending) {
+        flushLock.lock();
+        try {
+            boolean written = true;
+            List<HotCart> batch = new ArrayList<>(flushBatchSize);
+            for (HotCart cart : pending) {
+                batch.add(cart);
+                if (batch.size() == flushBatchSize) {
+                    written &= write(batch);
+                    batch = new ArrayList<>(flushBatchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                written &= write(batch);
+            }
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean write(List<HotCart> batch) {
+        List<CartSnapshot> snapshots = new ArrayList<>(batch.size());
+        for (HotCart cart : batch) {
+            CartSnapshot snapshot = cart.snapshot();
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return true;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeSnapshots(snapshots));
+        } catch (DataAccessException | TransactionException e) {
+            failedFlushes.increment();
+            snapshots.forEach(CartSnapshot::restore);
+            if (batch.size() > 1) {
+                // Write the carts one by one so a single bad cart doesn't hold back the others
+                boolean written = true;
+                for (HotCart cart : batch) {
+                    written &= write(List.of(cart));
+                }
+                return written;
+            }
+            return false;
+        }
+
+        for (CartSnapshot snapshot : snapshots) {
+            HotCart cart = snapshot.cart();
+            cart.lock.lock();
+            try {
+                if (!cart.dirty) {
+                    dirty.remove(cart.key, cart);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+        flushedCarts.increment(snapshots.size());
+        return true;
+    }
+
+    private void writeSnapshots(List<CartSnapshot> snapshots) {
+        jdbcTemplate.batchUpdate(UPSERT_CART, snapshots, flushBatchSize, (ps, s) -> {
+            ps.setString(1, s.cart().id);
+            ps.setString(2, s.cart().userId);
+            ps.setString(3, s.cart().sessionId);
+            ps.setObject(4, s.cart().createdAt);
+            ps.setObject(5, s.updatedAt());
+        });
+
+        List<String> removedIds = snapshots.stream()
+                .flatMap(s -> s.removedItemIds().stream())
+                .collect(Collectors.toList());
+        if (!removedIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ITEM, removedIds, flushBatchSize, (ps, id) -> ps.setString(1, id));
+        }
+
+        List<ItemRow> items = snapshots.stream()
+                .flatMap(s -> s.items().stream())
+                .collect(Collectors.toList());
+        if (!items.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ITEM, items, flushBatchSize, (ps, item) -> {
+                ps.setString(1, item.id());
+                ps.setString(2, item.cartId());
+                ps.setString(3, item.productId());
+                ps.setString(4, item.variantId());
+                ps.setInt(5, item.quantity());
+                ps.setBigDecimal(6, item.price());
+            });
+        }
+    }
+
+    private CartDto toDto(HotCart cart) {
+        CartDto dto = new CartDto();
+        dto.setId(cart.id);
+        dto.setUserId(cart.userId);
+        dto.setSessionId(cart.sessionId);
+
+        List<CartItemDto> items = new ArrayList<>(cart.items.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (HotCartItem item : cart.items) {
+            CartItemDto itemDto = new CartItemDto();
+            itemDto.setId(item.id);
+            itemDto.setProductId(item.productId);
+            itemDto.setProductName(item.productName);
+            itemDto.setProductImage(item.productImage);
+            itemDto.setVariantId(item.variantId);
+            itemDto.setQuantity(item.quantity);
+            itemDto.setPrice(item.price);
+            itemDto.setTotal(item.price.multiply(BigDecimal.valueOf(item.quantity)));
+            total = total.add(itemDto.getTotal());
+            items.add(itemDto);
+        }
+        dto.setItems(items);
+        dto.setTotal(total);
+        return dto;
+    }
+
+    private static String ownerKey(String userId, String sessionId) {
+        return userId != null ? "user:" + userId : "session:" + sessionId;
+    }
+
+    private record CartProduct(String id, String name, String image, BigDecimal price, int stock) {
+    }
+
+    private record ItemRow(String id, String cartId, String productId, String variantId, int quantity, BigDecimal price) {
+    }
+
+    private record CartSnapshot(HotCart cart, LocalDateTime updatedAt, List<ItemRow> items, Set<String> removedItemIds) {
+
+        /** Puts a failed write back so the next flush retries it. */
+        void restore() {
+            cart.lock.lock();
+            try {
+                cart.removedItemIds.addAll(removedItemIds);
+                cart.dirty = true;
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private static final class HotCart {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String key;
+        private final String id;
+        private final String userId;
+        private final String sessionId;
+        private final LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+        private final List<HotCartItem> items = new ArrayList<>();
+        private final Set<String> removedItemIds = new HashSet<>();
+        private volatile boolean dirty;
+        private boolean detached;
+
+        HotCart(String key, String id, String userId, String sessionId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.key = key;
+            this.id = id;
+            this.userId = userId;
+            this.sessionId = sessionId;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+
+        HotCartItem findItem(String itemId) {
+            return items.stream()
+                    .filter(item -> item.id.equals(itemId))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Item not found"));
+        }
+
+        void remove(HotCartItem item) {
+            items.remove(item);
+            removedItemIds.add(item.id);
+        }
+
+        void detach() {
+            lock.lock();
+            try {
+                detached = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void attach() {
+            lock.lock();
+            try {
+                detached = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Captures the pending changes and marks the cart clean, or returns null if there are none. */
+        CartSnapshot snapshot() {
+            lock.lock();
+            try {
+                if (!dirty) {
+                    return null;
+                }
+                List<ItemRow> rows = items.stream()
+                        .map(item -> new ItemRow(item.id, id, item.productId, item.variantId, item.quantity, item.price))
+                        .collect(Collectors.toList());
+                CartSnapshot snapshot = new CartSnapshot(this, updatedAt, rows, new HashSet<>(removedItemIds));
+                removedItemIds.clear();
+                dirty = false;
+                return snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class HotCartItem {
+        private final String id;
+        private final String productId;
+        private final String variantId;
+        private final String productName;
+        private final String productImage;
+        private int quantity;
+        private final BigDecimal price;
+
+        HotCartItem(String id, String productId, String variantId, String productName, String productImage,
+                    int quantity, BigDecimal price) {
+            this.id = id;
+            this.productId = productId;
+            this.variantId = variantId;
+            this.productName = productName;
+            this.productImage = productImage;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        static HotCartItem of(CartItem item) {
+            List<String> images = item.getProduct().getImages();
+            return new HotCartItem(item.getId(), item.getProduct().getId(),
+                    item.getVariant() != null ? item.getVariant().getId() : null,
+                    item.getProduct().getName(), images.isEmpty() ? null : images.get(0),
+                    item.getQuantity(), item.getPrice());
+        }
+    }
+}
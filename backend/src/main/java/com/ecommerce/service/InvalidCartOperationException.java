@@ -0,0 +1,10 @@
+package com.ecommerce.service;
+
+/**
+ * Thrown when a cart batch request is empty, too large or contains a malformed operation.
+ */
+public class InvalidCartOperationException extends RuntimeException {
+    public InvalidCartOperationException(String message) {
+        super(message);
+    }
+}
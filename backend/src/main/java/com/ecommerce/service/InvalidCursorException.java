@@ -0,0 +1,15 @@
+package com.ecommerce.service;
+
+/**
+ * Thrown when a keyset pagination cursor can't be used: malformed, issued for another sort field, or
+ * the sort field does not support cursors.
+ */
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.specification.ProductSpecification;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Opaque keyset pagination token: the sort key of the last row on a page plus its ID as tie-breaker.
+ */
+public class ProductCursor {
+
+    private static final Set<String> SORT_FIELDS = Set.of("createdAt", "price", "name");
+
+    private final String sortBy;
+    private final String id;
+    private final String value;
+
+    private ProductCursor(String sortBy, String id, String value) {
+        this.sortBy = sortBy;
+        this.id = id;
+        this.value = value;
+    }
+
+    public static boolean supports(String sortBy) {
+        return SORT_FIELDS.contains(sortBy);
+    }
+
+    /**
+     * Cursor for the row with the given ID and sort key value, as read with the page's IDs.
+     */
+    public static String encode(String sortBy, String id, Object sortValue) {
+        String value = sortValue instanceof BigDecimal price ? price.toPlainString() : String.valueOf(sortValue);
+        String raw = sortBy + "|" + id + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, String sortBy) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+        String[] parts = raw.split("\\|", 3);
+        if (parts.length != 3 || !parts[0].equals(sortBy)) {
+            throw new InvalidCursorException("Invalid cursor for sort field: " + sortBy);
+        }
+        return new ProductCursor(parts[0], parts[1], parts[2]);
+    }
+
+    public Specification<Product> seek(boolean ascending) {
+        try {
+            return switch (sortBy) {
+                case "createdAt" -> ProductSpecification.seekAfter(sortBy, LocalDateTime.parse(value), id, ascending);
+                case "price" -> ProductSpecification.seekAfter(sortBy, new BigDecimal(value), id, ascending);
+                default -> ProductSpecification.seekAfter(sortBy, value, id, ascending);
+            };
+        } catch (RuntimeException e) {
+            // DateTimeParseException, NumberFormatException
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+    }
+}
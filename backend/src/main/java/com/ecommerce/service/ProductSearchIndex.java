@@ -0,0 +1,212 @@
+package com.ecommerce.service;
+
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.model.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.ProductSearchDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over product name and description. Postings are kept in a sorted map
+ * so every query token is matched as a prefix with a single range lookup. Kept current by local
+ * product change events and rebuilt every {@code catalog.search.index.rebuild-interval-ms}, so changes
+ * made on other nodes show up too. Only created for the 'index' search mode.
+ */
+@Component
+@ConditionalOnProperty(name = "catalog.search.mode", havingValue = "index", matchIfMissing = true)
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (productId -> weight)
+    private NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+
+    // productId -> terms, so a product can be removed without scanning every posting list
+    private Map<String, Map<String, Integer>> documents = new HashMap<>();
+
+    // Changes that arrive while rebuild() reads the table; replayed onto the new index before it is swapped in
+    private List<ProductChangedEvent> changesDuringRebuild;
+
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.search.index.rebuild-interval-ms:600000}",
+            initialDelayString = "${catalog.search.index.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        NavigableMap<String, Map<String, Integer>> newPostings = new TreeMap<>();
+        Map<String, Map<String, Integer>> newDocuments = new HashMap<>();
+        try {
+            for (ProductSearchDocument doc : productRepository.findAllSearchDocuments()) {
+                Map<String, Integer> terms = weighTerms(doc.getName(), doc.getDescription());
+                newDocuments.put(doc.getId(), terms);
+                addPostings(newPostings, doc.getId(), terms);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (ProductChangedEvent event : changesDuringRebuild) {
+                apply(newPostings, newDocuments, event);
+            }
+            changesDuringRebuild = null;
+            postings = newPostings;
+            documents = newDocuments;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(postings, documents, event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the IDs of all products matching every token of the query (each token as a prefix),
+     * best match first. Exact term matches score higher than prefix matches.
+     */
+    public List<String> search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> scores = null;
+            for (String token : tokens) {
+                Map<String, Integer> tokenScores = new HashMap<>();
+                for (Map.Entry<String, Map<String, Integer>> entry
+                        : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+                    int boost = entry.getKey().length() == token.length() ? 2 : 1;
+                    entry.getValue().forEach((id, weight) -> tokenScores.merge(id, weight * boost, Math::max));
+                }
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<String, Integer> weighTerms(String name, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String token : tokenize(name)) {
+            terms.merge(token, NAME_WEIGHT, Math::max);
+        }
+        for (String token : tokenize(description)) {
+            terms.merge(token, DESCRIPTION_WEIGHT, Math::max);
+        }
+        return terms;
+    }
+
+    private void apply(NavigableMap<String, Map<String, Integer>> targetPostings,
+                       Map<String, Map<String, Integer>> targetDocuments, ProductChangedEvent event) {
+        Product product = event.getProduct();
+        removePostings(targetPostings, targetDocuments, product.getId());
+        if (!event.isRemoved()) {
+            Map<String, Integer> terms = weighTerms(product.getName(), product.getDescription());
+            targetDocuments.put(product.getId(), terms);
+            addPostings(targetPostings, product.getId(), terms);
+        }
+    }
+
+    private void addPostings(NavigableMap<String, Map<String, Integer>> target, String productId, Map<String, Integer> terms) {
+        terms.forEach((term, weight) -> target.computeIfAbsent(term, t -> new HashMap<>()).put(productId, weight));
+    }
+
+    private void removePostings(NavigableMap<String, Map<String, Integer>> targetPostings,
+                                Map<String, Map<String, Integer>> targetDocuments, String productId) {
+        Map<String, Integer> terms = targetDocuments.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<String, Integer> list = targetPostings.get(term);
+            if (list != null) {
+                list.remove(productId);
+                if (list.isEmpty()) {
+                    targetPostings.remove(term);
+                }
+            }
+        }
+    }
+}
@@ -1,39 +1,277 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CategoryFacetDto;
+import com.ecommerce.dto.PriceBucketDto;
+import com.ecommerce.dto.ProductCursorPage;
+import com.ecommerce.dto.ProductFacetsDto;
 import com.ecommerce.dto.ProductDto;
 import com.ecommerce.model.Product;
 import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.ProductSummary;
 import com.ecommerce.repository.specification.ProductSpecification;
+import jakarta.persistence.Tuple;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    public static final String RELEVANCE_SORT = "relevance";
+
     @Autowired
     private ProductRepository productRepository;
 
-    @Cacheable(value = "products", key = "{#categoryId, #search, #minPrice, #maxPrice, #featured, #pageable.pageNumber, #pageable.pageSize}")
+    // Present only with catalog.search.mode=index
+    @Autowired(required = false)
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryTree categoryTree;
+
+    // 'index': the in-memory inverted index; 'fulltext': a PostgreSQL tsvector column with a GIN index,
+    // shared by every node; 'like': plain SQL LIKE predicates
+    @Value("${catalog.search.mode:index}")
+    private String searchMode;
+
+    @Value("${catalog.search.fulltext-config:simple}")
+    private String textSearchConfig;
+
+    @Value("${catalog.listing.include-description:true}")
+    private boolean listingIncludesDescription;
+
+    @Value("${catalog.facets.price-bounds:25,50,100,250,500,1000}")
+    private List<BigDecimal> priceBounds;
+
+    @Cacheable(value = "products", sync = true, key = "{#categoryId, #search, #minPrice, #maxPrice, #featured, #pageable.pageNumber, #pageable.pageSize, #pageable.sort}")
     public Page<ProductDto> getProducts(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice, Boolean featured, Pageable pageable) {
-        Page<Product> products = productRepository.findAll(
-                ProductSpecification.filter(categoryId, search, minPrice, maxPrice, featured, true),
-                pageable
-        );
-        return products.map(this::mapToDto);
+        boolean byRelevance = pageable.getSort().getOrderFor(RELEVANCE_SORT) != null;
+
+        // Resolve the search term to ranked candidate IDs, then apply the remaining filters in SQL
+        List<String> candidateIds = resolveSearchCandidates(search);
+        if (candidateIds != null && candidateIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Specification<Product> spec = filterSpec(categoryId, search, minPrice, maxPrice, featured, candidateIds);
+        if (byRelevance && candidateIds != null) {
+            return rankedPage(spec, candidateIds, pageable);
+        }
+
+        // Two phases: page of IDs first, then the listing rows and their images
+        String textQuery = fullTextQuery(search);
+        Page<String> ids = byRelevance && textQuery != null
+                ? productRepository.findIdsByTextRank(spec, textSearchConfig, textQuery, pageable)
+                : productRepository.findIds(spec, byRelevance ? withDefaultSort(pageable) : pageable);
+        return new PageImpl<>(loadListing(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+    /**
+     * Keyset variant of {@link #getProducts}: seeks past the {@code after} cursor instead of using an
+     * OFFSET, and runs no count query. Use {@link #countProducts} when a total is really needed.
+     */
+    @Cacheable(value = "products", sync = true, key = "{'cursor', #categoryId, #search, #minPrice, #maxPrice, #featured, #sortBy, #direction, #after, #limit}")
+    public ProductCursorPage getProductsAfter(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice, Boolean featured,
+                                              String sortBy, Sort.Direction direction, String after, int limit) {
+        if (!ProductCursor.supports(sortBy)) {
+            throw new InvalidCursorException("Cursor pagination is not supported for sort field: " + sortBy);
+        }
+
+        List<String> candidateIds = resolveSearchCandidates(search);
+        if (candidateIds != null && candidateIds.isEmpty()) {
+            return new ProductCursorPage(List.of(), null, false);
+        }
+
+        Specification<Product> spec = filterSpec(categoryId, search, minPrice, maxPrice, featured, candidateIds);
+        if (after != null && !after.isEmpty()) {
+            spec = spec.and(ProductCursor.decode(after, sortBy).seek(direction.isAscending()));
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        Sort sort = Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+        List<Object[]> keys = productRepository.findTopKeys(spec, sort, sortBy, limit + 1);
+        boolean hasMore = keys.size() > limit;
+        if (hasMore) {
+            keys = keys.subList(0, limit);
+        }
+        List<String> ids = keys.stream().map(key -> (String) key[0]).collect(Collectors.toList());
+
+        List<ProductSummary> summaries = loadSummaries(ids);
+        Map<String, List<String>> images = ids.isEmpty() ? Map.of() : productRepository.findImages(ids);
+        List<ProductDto> content = summaries.stream()
+                .map(summary -> mapToDto(summary, images))
+                .collect(Collectors.toList());
+
+        // Built from the first phase, so rows deleted before the second one can't shift the cursor
+        Object[] last = hasMore ? keys.get(keys.size() - 1) : null;
+        String nextCursor = last != null ? ProductCursor.encode(sortBy, (String) last[0], last[1]) : null;
+        return new ProductCursorPage(content, nextCursor, hasMore);
+    }
+
+    @Cacheable(value = "productCounts", sync = true, key = "{#categoryId, #search, #minPrice, #maxPrice, #featured}")
+    public long countProducts(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice, Boolean featured) {
+        List<String> candidateIds = resolveSearchCandidates(search);
+        if (candidateIds != null && candidateIds.isEmpty()) {
+            return 0;
+        }
+        return productRepository.count(filterSpec(categoryId, search, minPrice, maxPrice, featured, candidateIds));
+    }
+
+    /**
+     * Category counts, price histogram and in-stock count for the same filters as {@link #getProducts}.
+     * Facets do not depend on the page, so every page of a listing shares one cache entry.
+     */
+    @Cacheable(value = "productFacets", sync = true, key = "{#categoryId, #search, #minPrice, #maxPrice, #featured}")
+    public ProductFacetsDto getFacets(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice, Boolean featured) {
+        ProductFacetsDto facets = new ProductFacetsDto();
+        long[] bucketCounts = new long[priceBounds.size() + 1];
+
+        List<String> candidateIds = resolveSearchCandidates(search);
+        if (candidateIds == null || !candidateIds.isEmpty()) {
+            List<Tuple> rows = productRepository.aggregateFacets(
+                    filterSpec(categoryId, search, minPrice, maxPrice, featured, candidateIds), priceBounds);
+
+            for (Tuple row : rows) {
+                long count = row.get(3, Number.class).longValue();
+                facets.setTotal(facets.getTotal() + count);
+                facets.setInStock(facets.getInStock() + row.get(4, Number.class).longValue());
+                for (int i = 0; i < bucketCounts.length; i++) {
+                    bucketCounts[i] += row.get(5 + i, Number.class).longValue();
+                }
+                if (row.get(0) != null) {
+                    facets.getCategories().add(new CategoryFacetDto(
+                            row.get(0, String.class), row.get(1, String.class), row.get(2, String.class), count));
+                }
+            }
+        }
+
+        facets.getCategories().sort(Comparator.comparingLong(CategoryFacetDto::getCount).reversed());
+        for (int i = 0; i < bucketCounts.length; i++) {
+            BigDecimal min = i == 0 ? BigDecimal.ZERO : priceBounds.get(i - 1);
+            BigDecimal max = i < priceBounds.size() ? priceBounds.get(i) : null;
+            facets.getPriceRanges().add(new PriceBucketDto(min, max, bucketCounts[i]));
+        }
+        return facets;
     }
 
-    @Cacheable(value = "product", key = "#slug")
+    @Cacheable(value = "product", sync = true, key = "#slug")
     public Optional<ProductDto> getProductBySlug(String slug) {
         return productRepository.findBySlug(slug).map(this::mapToDto);
     }
 
-    private ProductDto mapToDto(Product product) {
+    private Specification<Product> filterSpec(String categoryId, String search, BigDecimal minPrice, BigDecimal maxPrice,
+                                              Boolean featured, List<String> candidateIds) {
+        // A category filter covers the whole subtree below it
+        Set<String> categoryIds = categoryId == null || categoryId.isEmpty() ? null : categoryTree.subtreeIds(categoryId);
+        if (candidateIds == null) {
+            String textQuery = fullTextQuery(search);
+            if (textQuery != null) {
+                return ProductSpecification.filter(categoryIds, null, minPrice, maxPrice, featured, true)
+                        .and(ProductSpecification.matchesText(textSearchConfig, textQuery));
+            }
+            return ProductSpecification.filter(categoryIds, search, minPrice, maxPrice, featured, true);
+        }
+        return ProductSpecification.filter(categoryIds, null, minPrice, maxPrice, featured, true)
+                .and(ProductSpecification.hasIdIn(candidateIds));
+    }
+
+    /**
+     * Returns ranked candidate IDs for the search term, or null when the term should be matched
+     * in SQL instead (full-text or LIKE predicates of {@link ProductSpecification}).
+     */
+    private List<String> resolveSearchCandidates(String search) {
+        if (search == null || search.isEmpty()) {
+            return null;
+        }
+        if (productSearchIndex != null && productSearchIndex.isReady()) {
+            // Every match is passed on, so the results never depend on how many products match
+            return productSearchIndex.search(search);
+        }
+        if ("fulltext".equalsIgnoreCase(searchMode) && fullTextQuery(search) == null) {
+            // Nothing but separators: matches no product
+            return List.of();
+        }
+        return null;
+    }
+
+    /**
+     * The tsquery for the search term in 'fulltext' mode (every token as a prefix), or null.
+     */
+    private String fullTextQuery(String search) {
+        if (search == null || search.isEmpty() || !"fulltext".equalsIgnoreCase(searchMode)) {
+            return null;
+        }
+        String tsQuery = ProductSearchIndex.tokenize(search).stream()
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+        return tsQuery.isEmpty() ? null : tsQuery;
+    }
+
+    private Page<ProductDto> rankedPage(Specification<Product> spec, List<String> candidateIds, Pageable pageable) {
+        Map<String, Integer> rank = new HashMap<>();
+        for (int i = 0; i < candidateIds.size(); i++) {
+            rank.put(candidateIds.get(i), i);
+        }
+
+        // Only the IDs are ordered in memory; listing rows are read for the requested page alone
+        List<String> matches = productRepository.findIds(spec, Pageable.unpaged()).getContent().stream()
+                .sorted(Comparator.comparing(rank::get))
+                .collect(Collectors.toList());
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(loadListing(matches.subList(from, to)), pageable, matches.size());
+    }
+
+    private List<ProductDto> loadListing(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<String>> images = productRepository.findImages(ids);
+        return loadSummaries(ids).stream()
+                .map(summary -> mapToDto(summary, images))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reads the listing rows for a page of IDs as projections and returns them in the order of {@code ids}.
+     */
+    private List<ProductSummary> loadSummaries(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, ProductSummary> byId = productRepository.findSummaries(ids, listingIncludesDescription).stream()
+                .collect(Collectors.toMap(ProductSummary::id, Function.identity(), (a, b) -> a));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Pageable withDefaultSort(Pageable pageable) {
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "createdAt"));
+    }
+
+    ProductDto mapToDto(Product product) {
         ProductDto dto = new ProductDto();
         dto.setId(product.getId());
         dto.setName(product.getName());
@@ -41,17 +279,35 @@ public class ProductService {
         dto.setDescription(product.getDescription());
         dto.setPrice(product.getPrice());
         dto.setCompareAtPrice(product.getCompareAtPrice());
-        dto.setImages(product.getImages());
+        dto.setImages(new ArrayList<>(product.getImages()));
         dto.setStock(product.getStock());
         dto.setActive(product.isActive());
         dto.setFeatured(product.isFeatured());
         dto.setTaxRate(product.getTaxRate());
-        
+
         if (product.getCategory() != null) {
             dto.setCategoryName(product.getCategory().getName());
             dto.setCategorySlug(product.getCategory().getSlug());
         }
-        
+
+        return dto;
+    }
+
+    ProductDto mapToDto(ProductSummary summary, Map<String, List<String>> images) {
+        ProductDto dto = new ProductDto();
+        dto.setId(summary.id());
+        dto.setName(summary.name());
+        dto.setSlug(summary.slug());
+        dto.setDescription(summary.description());
+        dto.setPrice(summary.price());
+        dto.setCompareAtPrice(summary.compareAtPrice());
+        dto.setImages(images.getOrDefault(summary.id(), new ArrayList<>()));
+        dto.setStock(summary.stock());
+        dto.setActive(Boolean.TRUE.equals(summary.active()));
+        dto.setFeatured(Boolean.TRUE.equals(summary.featured()));
+        dto.setTaxRate(summary.taxRate());
+        dto.setCategoryName(summary.categoryName());
+        dto.setCategorySlug(summary.categorySlug());
         return dto;
     }
 }
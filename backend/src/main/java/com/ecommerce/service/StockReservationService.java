@@ -0,0 +1,590 @@
+package com.ecommerce.service;
+
+import com.ecommerce.model.StockLease;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.ProductVariantRepository;
+import com.ecommerce.repository.StockLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Stock reservations for carts, enabled with {@code stock.reservation.enabled=true}.
+ *
+ * <p>Stock leaves the database only through conditional decrements
+ * ({@code UPDATE ... SET stock = stock - n WHERE stock >= n}), so it can never go negative. Each node
+ * takes stock into a local pool of striped counters and serves reservations from there with a CAS.
+ * A node takes only what a reservation is missing, unless it already had to go to the database for the
+ * same product within {@code stock.reservation.hot-window}; then it takes a chunk of
+ * {@code stock.reservation.chunk-size}, so a hot product costs one row update per chunk instead of one
+ * row lock per buyer, while a quiet product's stock stays in the table where listings and other nodes
+ * see it. Chunks are recorded as {@link StockLease}s that the node renews;
+ * if it dies, another node gives the leased stock back once the lease expires. A node that finds its
+ * own lease given back that way (its renewals failed) forgets the pool's stock rather than count it twice.
+ *
+ * <p>A reservation holds stock for {@code stock.reservation.ttl} after its last change and is then
+ * released to the pool. Pool stock that nobody reserved for {@code stock.reservation.idle-return}
+ * goes back to the product.
+ *
+ * <p>Taking stock from the database uses a connection of its own, so {@link #setReserved} must be
+ * called outside any transaction: a caller holding a connection while waiting for a second one can
+ * exhaust the pool.
+ */
+@Service
+@ConditionalOnProperty(name = "stock.reservation.enabled", havingValue = "true")
+public class StockReservationService {
+
+    private static final int EXPIRED_LEASES_PER_SWEEP = 100;
+    private static final int LEASE_LOST = -1;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private StockLeaseRepository stockLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${stock.reservation.ttl:15m}")
+    private Duration ttl;
+
+    @Value("${stock.reservation.chunk-size:20}")
+    private int chunkSize;
+
+    @Value("${stock.reservation.stripes:8}")
+    private int stripeCount;
+
+    @Value("${stock.reservation.lease-ttl:5m}")
+    private Duration leaseTtl;
+
+    @Value("${stock.reservation.idle-return:1m}")
+    private Duration idleReturn;
+
+    @Value("${stock.reservation.hot-window:10s}")
+    private Duration hotWindow;
+
+    // Identifies this node's leases
+    private final String holder = UUID.randomUUID().toString();
+
+    private final Map<String, StockPool> pools = new ConcurrentHashMap<>();
+
+    // owner|sku -> reservation
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+    private Counter reserved;
+    private Counter rejected;
+    private Counter expired;
+    private Counter lostLeases;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Stock moves are committed on their own, whatever the caller's transaction does afterwards
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        reserved = meterRegistry.counter("stock.reservations", "result", "reserved");
+        rejected = meterRegistry.counter("stock.reservations", "result", "rejected");
+        expired = meterRegistry.counter("stock.reservations", "result", "expired");
+        lostLeases = meterRegistry.counter("stock.leases.lost");
+        Gauge.builder("stock.reservations.active", reservations, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Sets how much of a product (or variant, if {@code variantId} is given) {@code owner} holds,
+     * taking or releasing the difference, and restarts the reservation's TTL. A quantity of 0 or less
+     * releases the reservation.
+     *
+     * @throws RuntimeException "Insufficient stock" if the extra quantity can't be reserved
+     */
+    public void setReserved(String owner, String productId, String variantId, int quantity) {
+        reserve(owner, productId, variantId, held -> quantity);
+    }
+
+    /**
+     * Adds {@code delta} (which may be negative) to what {@code owner} holds of a product and restarts
+     * the reservation's TTL. Unlike {@link #setReserved}, two changes racing on the same owner both count.
+     *
+     * @throws RuntimeException "Insufficient stock" if the extra quantity can't be reserved
+     */
+    public void addReserved(String owner, String productId, String variantId, int delta) {
+        reserve(owner, productId, variantId, held -> held + delta);
+    }
+
+    private void reserve(String owner, String productId, String variantId, IntUnaryOperator next) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Stock must be reserved outside a transaction");
+        }
+        String key = owner + "|" + skuKey(productId, variantId);
+        while (true) {
+            Reservation reservation = reservations.computeIfAbsent(key,
+                    k -> new Reservation(pools.computeIfAbsent(skuKey(productId, variantId), s -> new StockPool(productId, variantId))));
+            synchronized (reservation) {
+                if (reservation.released) {
+                    continue;
+                }
+                int quantity = Math.max(next.applyAsInt(reservation.quantity), 0);
+                int delta = quantity - reservation.quantity;
+                if (delta > 0 && !reservation.pool.take(delta)) {
+                    rejected.increment();
+                    if (reservation.quantity == 0) {
+                        release(key, reservation);
+                    }
+                    throw new RuntimeException("Insufficient stock");
+                }
+                if (delta < 0) {
+                    reservation.pool.giveBack(-delta, reservation.epoch);
+                }
+                if (delta > 0) {
+                    reservation.epoch = reservation.pool.epoch;
+                    reserved.increment();
+                }
+                reservation.quantity = quantity;
+                reservation.expiresAt = System.nanoTime() + ttl.toNanos();
+                if (reservation.quantity == 0) {
+                    release(key, reservation);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the difference between {@code target} and {@code current} of every product to what
+     * {@code owner} holds, or takes it all back if one can't be had. Applying the change in reverse
+     * undoes it even when another change of the same owner ran in between.
+     */
+    public void setReservedAll(String owner, Map<String, Integer> current, Map<String, Integer> target) {
+        Map<String, Integer> deltas = new HashMap<>();
+        target.forEach((productId, quantity) -> deltas.put(productId, quantity - current.getOrDefault(productId, 0)));
+        current.forEach((productId, quantity) -> deltas.putIfAbsent(productId, -quantity));
+        List<String> changed = new ArrayList<>();
+        try {
+            deltas.forEach((productId, delta) -> {
+                if (delta != 0) {
+                    addReserved(owner, productId, null, delta);
+                    changed.add(productId);
+                }
+            });
+        } catch (RuntimeException e) {
+            for (String productId : changed) {
+                try {
+                    addReserved(owner, productId, null, -deltas.get(productId));
+                } catch (RuntimeException ignored) {
+                    // The reservation is re-taken on the cart's next change
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Makes {@code owner} hold at least the given quantity of each product again, re-taking what
+     * expired reservations gave up; never lowers a reservation. Returns the products whose stock
+     * can't be had any more.
+     */
+    public Set<String> holdAtLeast(String owner, Map<String, Integer> quantities) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Stock must be reserved outside a transaction");
+        }
+        Set<String> lapsed = new HashSet<>();
+        quantities.forEach((productId, quantity) -> {
+            String key = owner + "|" + skuKey(productId, null);
+            while (true) {
+                Reservation reservation = reservations.computeIfAbsent(key,
+                        k -> new Reservation(pools.computeIfAbsent(skuKey(productId, null), s -> new StockPool(productId, null))));
+                synchronized (reservation) {
+                    if (reservation.released) {
+                        continue;
+                    }
+                    int missing = quantity - reservation.quantity;
+                    if (missing > 0) {
+                        if (reservation.pool.take(missing)) {
+                            reservation.quantity = quantity;
+                            reservation.epoch = reservation.pool.epoch;
+                            reservation.expiresAt = System.nanoTime() + ttl.toNanos();
+                            reserved.increment();
+                        } else {
+                            rejected.increment();
+                            lapsed.add(productId);
+                        }
+                    }
+                    if (reservation.quantity == 0) {
+                        release(key, reservation);
+                    }
+                    break;
+                }
+            }
+        });
+        return lapsed;
+    }
+
+    /** Releases everything {@code owner} holds. */
+    public void releaseAll(String owner) {
+        String prefix = owner + "|";
+        reservations.forEach((key, reservation) -> {
+            if (key.startsWith(prefix)) {
+                synchronized (reservation) {
+                    if (!reservation.released) {
+                        reservation.pool.giveBack(reservation.quantity, reservation.epoch);
+                        release(key, reservation);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds everything {@code from} holds to what {@code to} holds of the same SKUs and restarts their
+     * TTL. No stock moves, so this may run inside a transaction. Used when one cart is merged into
+     * another.
+     */
+    public void transferAll(String from, String to) {
+        String prefix = from + "|";
+        reservations.forEach((key, reservation) -> {
+            if (!key.startsWith(prefix)) {
+                return;
+            }
+            int quantity;
+            int epoch;
+            synchronized (reservation) {
+                if (reservation.released) {
+                    return;
+                }
+                quantity = reservation.quantity;
+                epoch = reservation.epoch;
+                release(key, reservation);
+            }
+            String target = to + key.substring(from.length());
+            while (true) {
+                Reservation into = reservations.computeIfAbsent(target, k -> new Reservation(reservation.pool));
+                synchronized (into) {
+                    if (into.released) {
+                        continue;
+                    }
+                    into.epoch = into.quantity == 0 ? epoch : Math.max(into.epoch, epoch);
+                    into.quantity += quantity;
+                    into.expiresAt = System.nanoTime() + ttl.toNanos();
+                    return;
+                }
+            }
+        });
+    }
+
+    /** How much of a product (or variant) {@code owner} currently holds. */
+    int reservedQuantity(String owner, String productId, String variantId) {
+        Reservation reservation = reservations.get(owner + "|" + skuKey(productId, variantId));
+        if (reservation == null) {
+            return 0;
+        }
+        synchronized (reservation) {
+            return reservation.quantity;
+        }
+    }
+
+    /**
+     * Releases expired reservations, renews this node's leases, returns idle pool stock and gives
+     * back the stock of leases other nodes stopped renewing.
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-interval-ms:5000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        reservations.forEach((key, reservation) -> {
+            synchronized (reservation) {
+                if (!reservation.released && reservation.expiresAt - now < 0) {
+                    reservation.pool.giveBack(reservation.quantity, reservation.epoch);
+                    release(key, reservation);
+                    expired.increment();
+                }
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status ->
+                stockLeaseRepository.renew(holder, LocalDateTime.now().plus(leaseTtl)));
+
+        // A lease another node gave back (after renewals failed) no longer backs this node's pool
+        Map<StockPool, String> leased = new HashMap<>();
+        pools.values().forEach(pool -> {
+            String leaseId = pool.leaseId;
+            if (leaseId != null) {
+                leased.put(pool, leaseId);
+            }
+        });
+        if (!leased.isEmpty()) {
+            Set<String> held = stockLeaseRepository.findByHolder(holder).stream()
+                    .map(StockLease::getId)
+                    .collect(Collectors.toSet());
+            leased.forEach((pool, leaseId) -> {
+                if (!held.contains(leaseId)) {
+                    pool.leaseLost(leaseId);
+                }
+            });
+        }
+
+        for (StockPool pool : pools.values()) {
+            if (now - pool.lastTaken > idleReturn.toNanos()) {
+                pool.returnIdle();
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (StockLease lease : stockLeaseRepository.lockExpired(holder, LocalDateTime.now(), EXPIRED_LEASES_PER_SWEEP)) {
+                if (lease.getQuantity() > 0) {
+                    incrementStock(lease.getProductId(), lease.getVariantId(), lease.getQuantity());
+                }
+                stockLeaseRepository.delete(lease);
+            }
+        });
+    }
+
+    /** Gives all leased stock back on a clean shutdown; outstanding reservations end with the node. */
+    @PreDestroy
+    public void returnAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (StockLease lease : stockLeaseRepository.findByHolder(holder)) {
+                if (lease.getQuantity() > 0) {
+                    incrementStock(lease.getProductId(), lease.getVariantId(), lease.getQuantity());
+                }
+                stockLeaseRepository.delete(lease);
+            }
+        });
+    }
+
+    private void release(String key, Reservation reservation) {
+        reservation.quantity = 0;
+        reservation.released = true;
+        reservations.remove(key, reservation);
+    }
+
+    private boolean decrementStock(String productId, String variantId, int quantity) {
+        return variantId != null
+                ? productVariantRepository.decrementStock(variantId, quantity) == 1
+                : productRepository.decrementStock(productId, quantity) == 1;
+    }
+
+    private void incrementStock(String productId, String variantId, int quantity) {
+        if (variantId != null) {
+            productVariantRepository.incrementStock(variantId, quantity);
+        } else {
+            productRepository.incrementStock(productId, quantity);
+        }
+    }
+
+    private static String skuKey(String productId, String variantId) {
+        return variantId != null ? "variant:" + variantId : "product:" + productId;
+    }
+
+    private static final class Reservation {
+        private final StockPool pool;
+        private int quantity;
+        // The pool epoch the held stock was taken in; stock of an older epoch is not given back
+        private int epoch;
+        private long expiresAt;
+        private boolean released;
+
+        Reservation(StockPool pool) {
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * This node's unreserved stock of one SKU, spread over striped counters so concurrent buyers
+     * rarely CAS the same slot. Moves to and from the database happen under the pool's monitor.
+     */
+    private final class StockPool {
+        private final String productId;
+        private final String variantId;
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(Math.max(1, stripeCount));
+        private volatile long lastTaken = System.nanoTime();
+        private long lastClaimed;
+        private volatile String leaseId;
+        // Bumped when the lease is found given back; stock taken before then is no longer this node's
+        private volatile int epoch;
+
+        StockPool(String productId, String variantId) {
+            this.productId = productId;
+            this.variantId = variantId;
+        }
+
+        boolean take(int quantity) {
+            lastTaken = System.nanoTime();
+            return tryTake(quantity) || takeSlow(quantity);
+        }
+
+        void give(int quantity) {
+            if (quantity > 0) {
+                stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity);
+            }
+        }
+
+        /** Returns released stock to the pool, unless it was taken under a lease that has since been lost. */
+        void giveBack(int quantity, int takenInEpoch) {
+            if (takenInEpoch == epoch) {
+                give(quantity);
+            }
+        }
+
+        /**
+         * Forgets the pool's stock if {@code lostLeaseId} is still its lease: the stock was already
+         * given back to the product, so keeping it would count it twice.
+         */
+        synchronized void leaseLost(String lostLeaseId) {
+            if (lostLeaseId.equals(leaseId)) {
+                dropLease();
+            }
+        }
+
+        synchronized void returnIdle() {
+            int idle = drain();
+            if (idle == 0) {
+                return;
+            }
+            try {
+                Boolean returned = transactionTemplate.execute(status -> {
+                    if (stockLeaseRepository.addQuantity(leaseId, -idle) == 0) {
+                        return false;
+                    }
+                    incrementStock(productId, variantId, idle);
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(returned)) {
+                    // The lease was already given back, and the idle stock with it
+                    dropLease();
+                }
+            } catch (RuntimeException e) {
+                // Keep it in the pool; the next sweep tries again
+                give(idle);
+            }
+        }
+
+        private boolean tryTake(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes.length());
+            for (int i = 0; i < stripes.length(); i++) {
+                int index = (start + i) % stripes.length();
+                int current;
+                while ((current = stripes.get(index)) >= quantity) {
+                    if (stripes.compareAndSet(index, current, current - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private synchronized boolean takeSlow(int quantity) {
+            if (tryTake(quantity)) {
+                return true;
+            }
+            // Stock may be spread over several stripes, so gather it before going to the database
+            int local = drain();
+            if (local < quantity) {
+                int claimed = claim(quantity - local);
+                if (claimed == LEASE_LOST) {
+                    // What was gathered belonged to the lost lease; claim everything afresh
+                    local = 0;
+                    claimed = claim(quantity);
+                }
+                local += Math.max(claimed, 0);
+            }
+            if (local < quantity) {
+                give(local);
+                return false;
+            }
+            give(local - quantity);
+            return true;
+        }
+
+        /**
+         * Takes {@code missing} out of the database, or a chunk of at least that much if this pool
+         * already claimed stock within the hot window; falls back to exactly {@code missing}. Returns
+         * {@link #LEASE_LOST}, with the pool emptied, if the pool's lease turns out to be given back.
+         */
+        private int claim(int missing) {
+            long now = System.nanoTime();
+            boolean hot = lastClaimed != 0 && now - lastClaimed < hotWindow.toNanos();
+            lastClaimed = now;
+            int chunk = hot ? Math.max(chunkSize, missing) : missing;
+            int claimed = claimExactly(chunk);
+            if (claimed == 0 && chunk > missing) {
+                claimed = claimExactly(missing);
+            }
+            return claimed;
+        }
+
+        /** Claims exactly {@code quantity}; returns it, 0 if the product hasn't that much, or {@link #LEASE_LOST}. */
+        private int claimExactly(int quantity) {
+            Integer claimed = transactionTemplate.execute(status -> {
+                // The lease first: if another node gave it back, nothing may be taken against it
+                if (leaseId != null && stockLeaseRepository.addQuantity(leaseId, quantity) == 0) {
+                    return LEASE_LOST;
+                }
+                if (!decrementStock(productId, variantId, quantity)) {
+                    status.setRollbackOnly();
+                    return 0;
+                }
+                if (leaseId == null) {
+                    StockLease lease = new StockLease();
+                    lease.setProductId(productId);
+                    lease.setVariantId(variantId);
+                    lease.setQuantity(quantity);
+                    lease.setHolder(holder);
+                    lease.setExpiresAt(LocalDateTime.now().plus(leaseTtl));
+                    leaseId = stockLeaseRepository.save(lease).getId();
+                }
+                return quantity;
+            });
+            if (claimed != null && claimed == LEASE_LOST) {
+                dropLease();
+            }
+            return claimed != null ? claimed : 0;
+        }
+
+        /** Empties the pool without returning anything and starts over without a lease. */
+        private void dropLease() {
+            drain();
+            leaseId = null;
+            epoch++;
+            lostLeases.increment();
+        }
+
+        private int drain() {
+            int total = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                total += stripes.getAndSet(i, 0);
+            }
+            return total;
+        }
+    }
+}
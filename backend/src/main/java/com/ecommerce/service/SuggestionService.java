@@ -0,0 +1,80 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.SuggestionDto;
+import com.ecommerce.event.CategoryChangedEvent;
+import com.ecommerce.event.ProductChangedEvent;
+import com.ecommerce.repository.CategoryRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typeahead suggestions for product and category names. Lookups only read immutable tries, so
+ * they never touch the database or the product caches; catalog changes mark the tries dirty and
+ * they are rebuilt off the request path. Tries older than {@code catalog.suggest.max-age} are rebuilt
+ * too, so changes made on other nodes show up.
+ */
+@Service
+public class SuggestionService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Value("${catalog.suggest.max-results:10}")
+    private int maxResults;
+
+    @Value("${catalog.suggest.max-age:10m}")
+    private Duration maxAge;
+
+    private volatile SuggestionTrie productTrie = new SuggestionTrie(List.of(), 1);
+    private volatile SuggestionTrie categoryTrie = new SuggestionTrie(List.of(), 1);
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private volatile long builtAt = System.nanoTime();
+
+    public List<SuggestionDto> suggestProducts(String prefix, int limit) {
+        return productTrie.suggest(prefix, limit);
+    }
+
+    public List<SuggestionDto> suggestCategories(String prefix, int limit) {
+        return categoryTrie.suggest(prefix, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        dirty.set(false);
+        builtAt = System.nanoTime();
+        productTrie = new SuggestionTrie(productRepository.findAllSuggestions(), maxResults);
+        categoryTrie = new SuggestionTrie(categoryRepository.findAllSuggestions(), maxResults);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.suggest.rebuild-interval-ms:5000}")
+    public void rebuildIfDirty() {
+        if (dirty.get() || System.nanoTime() - builtAt > maxAge.toNanos()) {
+            rebuild();
+        }
+    }
+}
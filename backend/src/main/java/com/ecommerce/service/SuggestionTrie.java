@@ -0,0 +1,151 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.SuggestionDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable burst trie over the word starts of suggestion names. The first {@link #TRIE_DEPTH}
+ * characters are trie nodes that carry their precomputed top results; longer keys live in a
+ * bucket at the last level and are matched in place against the normalized name, so no key
+ * strings are materialized.
+ *
+ * <p>Suggestions must be supplied best first: a lower index is a better suggestion, which keeps
+ * every top list a simple "smallest indexes" merge.
+ */
+class SuggestionTrie {
+
+    private static final int TRIE_DEPTH = 4;
+
+    private final SuggestionDto[] suggestions;
+    private final String[] texts;
+    private final int maxResults;
+    private final Node root = new Node();
+
+    SuggestionTrie(List<SuggestionDto> rankedSuggestions, int maxResults) {
+        this.suggestions = rankedSuggestions.toArray(new SuggestionDto[0]);
+        this.texts = new String[suggestions.length];
+        this.maxResults = maxResults;
+
+        for (int i = 0; i < suggestions.length; i++) {
+            texts[i] = normalize(suggestions[i].getName());
+            String text = texts[i];
+            for (int offset = 0; offset < text.length(); offset++) {
+                if (offset == 0 || text.charAt(offset - 1) == ' ') {
+                    insert(i, offset);
+                }
+            }
+        }
+        root.seal(maxResults);
+    }
+
+    List<SuggestionDto> suggest(String prefix, int limit) {
+        String query = normalize(prefix);
+        // A limit below 1 (e.g. ?limit=-1) asks for nothing rather than failing
+        int max = Math.min(limit, maxResults);
+        if (query.isEmpty() || max <= 0) {
+            return List.of();
+        }
+
+        Node node = root;
+        for (int depth = 0; depth < Math.min(query.length(), TRIE_DEPTH); depth++) {
+            node = node.children.get(query.charAt(depth));
+            if (node == null) {
+                return List.of();
+            }
+        }
+
+        List<SuggestionDto> results = new ArrayList<>(max);
+        if (query.length() <= TRIE_DEPTH) {
+            for (int i = 0; i < node.top.length && results.size() < max; i++) {
+                results.add(suggestions[node.top[i]]);
+            }
+            return results;
+        }
+
+        // Bucket entries are ordered by suggestion index, so the first matches are the best ones
+        int last = -1;
+        for (long entry : node.bucket) {
+            int index = (int) (entry >>> 32);
+            int offset = (int) entry;
+            if (index != last && texts[index].startsWith(query, offset)) {
+                results.add(suggestions[index]);
+                last = index;
+                if (results.size() == max) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", ProductSearchIndex.tokenize(text));
+    }
+
+    private void insert(int index, int offset) {
+        String text = texts[index];
+        Node node = root;
+        int depth = 0;
+        while (depth < TRIE_DEPTH && offset + depth < text.length()) {
+            node = node.children.computeIfAbsent(text.charAt(offset + depth), c -> new Node());
+            depth++;
+        }
+        if (depth == TRIE_DEPTH) {
+            node.addBucketEntry(((long) index << 32) | offset);
+        } else {
+            node.addTerminal(index);
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private List<Integer> terminals;
+        private long[] bucket = new long[0];
+        private int bucketSize;
+        private int[] top;
+
+        void addTerminal(int index) {
+            if (terminals == null) {
+                terminals = new ArrayList<>(1);
+            }
+            terminals.add(index);
+        }
+
+        void addBucketEntry(long entry) {
+            if (bucketSize == bucket.length) {
+                bucket = Arrays.copyOf(bucket, Math.max(4, bucketSize * 2));
+            }
+            bucket[bucketSize++] = entry;
+        }
+
+        void seal(int maxResults) {
+            bucket = Arrays.copyOf(bucket, bucketSize);
+            Arrays.sort(bucket);
+
+            List<Integer> candidates = new ArrayList<>();
+            if (terminals != null) {
+                candidates.addAll(terminals);
+                terminals = null;
+            }
+            for (long entry : bucket) {
+                candidates.add((int) (entry >>> 32));
+            }
+            for (Node child : children.values()) {
+                child.seal(maxResults);
+                for (int index : child.top) {
+                    candidates.add(index);
+                }
+            }
+            top = candidates.stream().mapToInt(Integer::intValue)
+                    .sorted()
+                    .distinct()
+                    .limit(maxResults)
+                    .toArray();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers users' last login and last seen times in memory and writes them every
+ * {@code user.activity.flush-interval-ms}, so recording activity costs a map update on the request
+ * thread. Repeated activity by a user between flushes collapses into one entry, and each flush updates
+ * up to {@code user.activity.batch-size} users per statement. Entries still buffered when a node dies
+ * are lost, which is acceptable for analytics timestamps. Writes keep the later of the stored and
+ * buffered times (PostgreSQL's GREATEST skips nulls), so flushes from several nodes never move either
+ * timestamp backwards.
+ */
+@Component
+public class UserActivityTracker {
+
+    private static final String UPDATE_PREFIX = "UPDATE users u SET"
+            + " last_login = GREATEST(v.last_login, u.last_login),"
+            + " last_seen_at = GREATEST(v.last_seen_at, u.last_seen_at)"
+            + " FROM (VALUES ";
+    private static final String UPDATE_ROW = "(?, CAST(? AS timestamp), CAST(? AS timestamp))";
+    private static final String UPDATE_SUFFIX = ") AS v(id, last_login, last_seen_at) WHERE u.id = v.id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.activity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${user.activity.batch-size:500}")
+    private int batchSize;
+
+    private final Map<String, Activity> pending = new ConcurrentHashMap<>();
+
+    private Counter flushedUsers;
+    private Counter failedFlushes;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("user.activity.pending", pending, Map::size).register(meterRegistry);
+        flushedUsers = meterRegistry.counter("user.activity.flushed");
+        failedFlushes = meterRegistry.counter("user.activity.flush.failures");
+    }
+
+    public void recordLogin(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        record(userId, new Activity(now, now));
+    }
+
+    public void recordActivity(String userId) {
+        record(userId, new Activity(null, LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${user.activity.flush-interval-ms:5000}")
+    public void flush() {
+        List<String> ids = new ArrayList<>(batchSize);
+        List<Activity> activities = new ArrayList<>(batchSize);
+        for (String id : pending.keySet()) {
+            Activity activity = pending.remove(id);
+            if (activity == null) {
+                continue;
+            }
+            ids.add(id);
+            activities.add(activity);
+            if (ids.size() == batchSize) {
+                write(ids, activities);
+                ids = new ArrayList<>(batchSize);
+                activities = new ArrayList<>(batchSize);
+            }
+        }
+        if (!ids.isEmpty()) {
+            write(ids, activities);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void record(String userId, Activity activity) {
+        if (enabled && userId != null) {
+            pending.merge(userId, activity, Activity::latest);
+        }
+    }
+
+    private void write(List<String> ids, List<Activity> activities) {
+        String sql = UPDATE_PREFIX + String.join(", ", Collections.nCopies(ids.size(), UPDATE_ROW)) + UPDATE_SUFFIX;
+        Object[] args = new Object[ids.size() * 3];
+        for (int i = 0; i < ids.size(); i++) {
+            Activity activity = activities.get(i);
+            args[i * 3] = ids.get(i);
+            args[i * 3 + 1] = activity.lastLogin() != null ? Timestamp.valueOf(activity.lastLogin()) : null;
+            args[i * 3 + 2] = Timestamp.valueOf(activity.lastSeen());
+        }
+        try {
+            jdbcTemplate.update(sql, args);
+            flushedUsers.increment(ids.size());
+        } catch (DataAccessException e) {
+            failedFlushes.increment();
+            // Put the entries back for the next flush, merged with anything recorded since
+            for (int i = 0; i < ids.size(); i++) {
+                pending.merge(ids.get(i), activities.get(i), Activity::latest);
+            }
+        }
+    }
+
+    private record Activity(LocalDateTime lastLogin, LocalDateTime lastSeen) {
+
+        Activity latest(Activity other) {
+            return new Activity(later(lastLogin, other.lastLogin), later(lastSeen, other.lastSeen));
+        }
+
+        private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+            if (a == null) {
+                return b;
+            }
+            return b == null || a.isAfter(b) ? a : b;
+        }
+    }
+}
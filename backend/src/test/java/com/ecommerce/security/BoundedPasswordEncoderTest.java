@@ -0,0 +1,143 @@
+package com.ecommerce.security;
+
+import com.ecommerce.config.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BoundedPasswordEncoderTest {
+
+    // Hashes of this password block until the test releases them, like a slow BCrypt that ignores interrupts
+    private static final String SLOW = "slow";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BoundedPasswordEncoder encoder;
+
+    @BeforeEach
+    void createEncoder() {
+        encoder = encoder(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void releaseHashes() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    void rejectionWhenAllSlotsAreTakenAnswers503WithRetryAfter() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new HashingController(encoder))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        assertThat(encoder.maxInFlight()).isEqualTo(2);
+        CompletableFuture.runAsync(() -> encoder.encode(SLOW));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture.runAsync(() -> encoder.encode(SLOW));
+        awaitInFlight(2);
+
+        mockMvc.perform(post("/hash").param("password", "secret"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void timedOutHashKeepsItsSlotUntilItEnds() throws Exception {
+        encoder.destroy();
+        meterRegistry = new SimpleMeterRegistry();
+        encoder = encoder(Duration.ofMillis(200));
+
+        assertThatThrownBy(() -> encoder.encode(SLOW)).isInstanceOf(PasswordHashingRejectedException.class);
+        // The caller gave up, but the hash still runs and still counts
+        assertThat(inFlight()).isEqualTo(1);
+
+        release.countDown();
+        awaitInFlight(0);
+        assertThat(encoder.encode("secret")).isEqualTo("hash:secret");
+    }
+
+    @Test
+    void slotsAreSizedToWhatTheThreadsFinishWithinTheTimeout() {
+        assertThat(BoundedPasswordEncoder.maxInFlight(2, 64, Duration.ofSeconds(5), Duration.ofMillis(100))).isEqualTo(66);
+        assertThat(BoundedPasswordEncoder.maxInFlight(2, 64, Duration.ofSeconds(1), Duration.ofMillis(100))).isEqualTo(20);
+        assertThat(BoundedPasswordEncoder.maxInFlight(2, 64, Duration.ofMillis(50), Duration.ofMillis(100))).isEqualTo(1);
+    }
+
+    private BoundedPasswordEncoder encoder(Duration timeout) {
+        return new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, timeout, meterRegistry);
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("security.password.hashing.in-flight").gauge().value();
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(inFlight()).isEqualTo(expected);
+    }
+
+    private class BlockingEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if (SLOW.contentEquals(rawPassword)) {
+                started.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+
+    @RestController
+    static class HashingController {
+        private final PasswordEncoder encoder;
+
+        HashingController(PasswordEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        @PostMapping("/hash")
+        String hash(@RequestParam String password) {
+            return encoder.encode(password);
+        }
+    }
+}
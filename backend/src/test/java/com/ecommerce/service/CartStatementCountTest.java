@@ -0,0 +1,127 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AddToCartRequest;
+import com.ecommerce.dto.CartDto;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the statements of each cart call on carts of different sizes, so a call that starts loading
+ * items, products or images one by one fails the build.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(CartService.class)
+class CartStatementCountTest {
+
+    private static final int SMALL = 2;
+    private static final int LARGE = 20;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void createCatalog() {
+        Category category = new Category();
+        category.setName("Shoes");
+        category.setSlug("shoes");
+        entityManager.persist(category);
+
+        for (int i = 0; i <= LARGE; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setSlug("product-" + i);
+            product.setPrice(BigDecimal.valueOf(10 + i));
+            product.setStock(100);
+            product.setCategory(category);
+            product.setImages(List.of("https://img.example/" + i + "-a.jpg", "https://img.example/" + i + "-b.jpg"));
+            entityManager.persist(product);
+            products.add(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getCart() {
+        // Cart row, items with their products and images
+        assertStatementCountDoesNotDependOnItems(2, (session, cart) -> cartService.getCart(null, session));
+    }
+
+    @Test
+    void addToCart() {
+        assertStatementCountDoesNotDependOnItems(5, (session, cart) ->
+                cartService.addToCart(null, session, add(products.get(LARGE), 1)));
+    }
+
+    @Test
+    void updateCartItem() {
+        assertStatementCountDoesNotDependOnItems(4, (session, cart) ->
+                cartService.updateCartItem(null, session, cart.getItems().get(0).getId(), 3));
+    }
+
+    @Test
+    void removeFromCart() {
+        assertStatementCountDoesNotDependOnItems(4, (session, cart) ->
+                cartService.removeFromCart(null, session, cart.getItems().get(0).getId()));
+    }
+
+    private void assertStatementCountDoesNotDependOnItems(long bound, BiFunction<String, CartDto, CartDto> call) {
+        long small = statementsFor(SMALL, call);
+        long large = statementsFor(LARGE, call);
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(bound);
+    }
+
+    private long statementsFor(int items, BiFunction<String, CartDto, CartDto> call) {
+        String session = "cart-with-" + items;
+        CartDto cart = null;
+        for (int i = 0; i < items; i++) {
+            cart = cartService.addToCart(null, session, add(products.get(i), 1));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CartDto result = call.apply(session, cart);
+        entityManager.flush();
+
+        assertThat(result.getItems()).isNotEmpty();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static AddToCartRequest add(Product product, int quantity) {
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(product.getId());
+        request.setQuantity(quantity);
+        return request;
+    }
+}
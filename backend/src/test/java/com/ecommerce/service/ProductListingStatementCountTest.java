@@ -0,0 +1,99 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "catalog.search.mode=like"
+})
+@Import({ProductService.class, CategoryTree.class})
+class ProductListingStatementCountTest {
+
+    private static final int PRODUCTS = 30;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void createCatalog() {
+        Category category = new Category();
+        category.setName("Shoes");
+        category.setSlug("shoes");
+        entityManager.persist(category);
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setSlug("product-" + i);
+            product.setDescription("Description " + i);
+            product.setPrice(BigDecimal.valueOf(10 + i));
+            product.setCategory(category);
+            product.setImages(List.of("https://img.example/" + i + "-a.jpg", "https://img.example/" + i + "-b.jpg"));
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void statementCountDoesNotDependOnPageSize() {
+        long small = statementsForPage(2);
+        long large = statementsForPage(24);
+
+        assertThat(large).isEqualTo(small);
+        // Page IDs, total count, listing rows, images
+        assertThat(large).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void pageContainsImagesAndCategory() {
+        Page<ProductDto> page = productService.getProducts(null, null, null, null, null,
+                PageRequest.of(0, 5, Sort.by(Sort.Direction.ASC, "price")));
+
+        assertThat(page.getTotalElements()).isEqualTo(PRODUCTS);
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(page.getContent().get(0).getName()).isEqualTo("Product 0");
+        assertThat(page.getContent()).allSatisfy(product -> {
+            assertThat(product.getImages()).hasSize(2);
+            assertThat(product.getCategorySlug()).isEqualTo("shoes");
+        });
+    }
+
+    private long statementsForPage(int size) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<ProductDto> page = productService.getProducts(null, null, null, null, null,
+                PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertThat(page.getContent()).hasSize(size);
+        return statistics.getPrepareStatementCount();
+    }
+}
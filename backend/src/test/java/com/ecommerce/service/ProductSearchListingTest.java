@@ -0,0 +1,76 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductDto;
+import com.ecommerce.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Index-mode search passes every match on to the listing query, so a broad term finds at least
+ * what a narrower one does.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "catalog.search.mode=index"
+})
+@Import({ProductService.class, CategoryTree.class, ProductSearchIndex.class})
+class ProductSearchListingTest {
+
+    private static final int PRODUCTS = 40;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void createCatalog() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName((i % 2 == 0 ? "Running shoe " : "Trail shoe ") + i);
+            product.setSlug("shoe-" + i);
+            product.setPrice(BigDecimal.valueOf(10 + i));
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        productSearchIndex.rebuild();
+    }
+
+    @Test
+    void broadTermFindsEveryMatch() {
+        Page<ProductDto> broad = search("sho", Sort.by(Sort.Direction.ASC, "price"));
+        Page<ProductDto> narrow = search("running sho", Sort.by(Sort.Direction.ASC, "price"));
+
+        assertThat(broad.getTotalElements()).isEqualTo(PRODUCTS);
+        assertThat(narrow.getTotalElements()).isEqualTo(PRODUCTS / 2);
+        assertThat(productService.countProducts(null, "sho", null, null, null)).isEqualTo(PRODUCTS);
+    }
+
+    @Test
+    void relevancePagesCoverEveryMatch() {
+        Page<ProductDto> page = search("trail", Sort.by(ProductService.RELEVANCE_SORT));
+
+        assertThat(page.getTotalElements()).isEqualTo(PRODUCTS / 2);
+        assertThat(page.getContent()).allSatisfy(product -> assertThat(product.getName()).startsWith("Trail"));
+    }
+
+    private Page<ProductDto> search(String term, Sort sort) {
+        return productService.getProducts(null, term, null, null, null, PageRequest.of(0, 10, sort));
+    }
+}
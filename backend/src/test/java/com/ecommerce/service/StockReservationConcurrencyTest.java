@@ -0,0 +1,237 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AddToCartRequest;
+import com.ecommerce.dto.CartDto;
+import com.ecommerce.dto.CartItemDto;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.StockLease;
+import com.ecommerce.repository.CartRepository;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.StockLeaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs many more concurrent add-to-cart calls than there are pool connections against a product
+ * whose stock runs out, as in a flash sale.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:stock-reservations;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000",
+        "stock.reservation.enabled=true",
+        "stock.reservation.sweep-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CartService.class, StockReservationService.class, SimpleMeterRegistry.class})
+class StockReservationConcurrencyTest {
+
+    private static final int STOCK = 30;
+    private static final int BUYERS = 48;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private StockReservationService stockReservations;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Autowired
+    private StockLeaseRepository stockLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String productId;
+
+    @BeforeEach
+    void createProduct() {
+        Product product = new Product();
+        String slug = "flash-" + UUID.randomUUID();
+        product.setName("Flash sale");
+        product.setSlug(slug);
+        product.setPrice(BigDecimal.TEN);
+        product.setStock(STOCK);
+        productId = productRepository.save(product).getId();
+    }
+
+    @Test
+    void concurrentBuyersGetExactlyTheStockWithoutExhaustingThePool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            String sessionId = "buyer-" + i;
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    cartService.addToCart(null, sessionId, addOne());
+                    return true;
+                } catch (RuntimeException e) {
+                    assertThat(e).hasMessage("Insufficient stock");
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int reserved = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                reserved++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(reserved).isEqualTo(STOCK);
+        // Everything that left the product is recorded in this node's leases
+        int leased = stockLeaseRepository.findAll().stream()
+                .filter(lease -> lease.getProductId().equals(productId))
+                .mapToInt(StockLease::getQuantity)
+                .sum();
+        assertThat(productRepository.findById(productId).orElseThrow().getStock() + leased).isEqualTo(STOCK);
+    }
+
+    @Test
+    void concurrentChangesToOneCartKeepItsReservationInStep() throws Exception {
+        assertSharedCartMatchesReservation(addToSharedCart("one-node-cart", List.of(cartService)), "one-node-cart");
+    }
+
+    @Test
+    void changesToOneCartFromTwoNodesKeepItsReservationInStep() throws Exception {
+        // A second service has its own cart locks, like another node; only the cart version orders the two
+        CartService otherNode = new CartService();
+        beanFactory.autowireBean(otherNode);
+        otherNode.init();
+
+        assertSharedCartMatchesReservation(addToSharedCart("two-node-cart", List.of(cartService, otherNode)), "two-node-cart");
+    }
+
+    @Test
+    void stockOfALeaseGivenBackByAnotherNodeIsNotUsedAgain() {
+        cartService.addToCart(null, "early-1", addOne());
+        // Within the hot window, so this claims a chunk and leaves the rest in the local pool
+        cartService.addToCart(null, "early-2", addOne());
+        assertThat(leased()).isGreaterThan(2);
+
+        // Renewals failed: another node's sweep returns the lease to the product
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (StockLease lease : stockLeaseRepository.findAll()) {
+                if (lease.getProductId().equals(productId)) {
+                    productRepository.incrementStock(productId, lease.getQuantity());
+                    stockLeaseRepository.delete(lease);
+                }
+            }
+        });
+        assertThat(productRepository.findById(productId).orElseThrow().getStock()).isEqualTo(STOCK);
+
+        AddToCartRequest request = addOne();
+        request.setQuantity(25);
+        cartService.addToCart(null, "late", request);
+
+        int stock = productRepository.findById(productId).orElseThrow().getStock();
+        assertThat(stock + 25).isLessThanOrEqualTo(STOCK);
+        assertThat(stock + leased()).isEqualTo(STOCK);
+    }
+
+    @Test
+    void singleReservationTakesOnlyWhatItNeeds() {
+        cartService.addToCart(null, "single-buyer", addOne());
+
+        assertThat(productRepository.findById(productId).orElseThrow().getStock()).isEqualTo(STOCK - 1);
+    }
+
+    private int addToSharedCart(String sessionId, List<CartService> nodes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            CartService node = nodes.get(i % nodes.size());
+            results.add(executor.submit(() -> {
+                start.await();
+                while (true) {
+                    try {
+                        node.addToCart(null, sessionId, addOne());
+                        return true;
+                    } catch (ConcurrentCartChangeException e) {
+                        // Answered with 409; the client sends the change again
+                    } catch (RuntimeException e) {
+                        assertThat(e).hasMessage("Insufficient stock");
+                        return false;
+                    }
+                }
+            }));
+        }
+        start.countDown();
+
+        int added = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                added++;
+            }
+        }
+        executor.shutdown();
+        return added;
+    }
+
+    private void assertSharedCartMatchesReservation(int added, String sessionId) {
+        // Checked before reading the cart, which would take any missing stock again
+        String cartId = cartRepository.findBySessionId(sessionId).orElseThrow().getId();
+        int reserved = stockReservations.reservedQuantity(cartId, productId, null);
+
+        CartDto cart = cartService.getCart(null, sessionId);
+        int inCart = cart.getItems().stream().mapToInt(CartItemDto::getQuantity).sum();
+        assertThat(added).isEqualTo(STOCK);
+        assertThat(cart.getItems()).hasSize(1);
+        assertThat(inCart).isEqualTo(STOCK);
+        assertThat(reserved).isEqualTo(inCart);
+    }
+
+    private int leased() {
+        return stockLeaseRepository.findAll().stream()
+                .filter(lease -> lease.getProductId().equals(productId))
+                .mapToInt(StockLease::getQuantity)
+                .sum();
+    }
+
+    private AddToCartRequest addOne() {
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(productId);
+        request.setQuantity(1);
+        return request;
+    }
+}
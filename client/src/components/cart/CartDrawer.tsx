@@ -78,6 +78,11 @@ export function CartDrawer() {
                       <p className="font-semibold text-sm mt-1">
                         {formatPrice(parseFloat(item.price))}
                       </p>
+                      {item.reservationLapsed && (
+                        <p className="text-xs text-destructive mt-0.5" data-testid={`text-reservation-lapsed-${item.id}`}>
+                          No longer held for you, stock may run out
+                        </p>
+                      )}
 
                       <div className="flex items-center justify-between mt-2">
                         <div className="flex items-center gap-1">
@@ -2,6 +2,7 @@ import type { ReactNode } from "react";
 import { useLocation } from "wouter";
 import { Header } from "./Header";
 import { Footer } from "./Footer";
+import { QueueBanner } from "./QueueBanner";
 import { CartDrawer } from "@/components/cart/CartDrawer";
 
 interface LayoutProps {
@@ -19,6 +20,7 @@ export function Layout({ children }: LayoutProps) {
   return (
     <div className="min-h-screen flex flex-col bg-background">
       <Header />
+      <QueueBanner />
       <main className="flex-1">
         {children}
       </main>
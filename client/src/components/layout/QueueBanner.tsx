@@ -0,0 +1,28 @@
+import { useEffect, useState } from "react";
+import { Clock } from "lucide-react";
+import { subscribeToQueue, type QueueState } from "@/lib/waitingRoom";
+
+export function QueueBanner() {
+  const [queue, setQueue] = useState<QueueState | null>(null);
+
+  useEffect(() => subscribeToQueue(setQueue), []);
+
+  if (!queue?.waiting) {
+    return null;
+  }
+
+  return (
+    <div className="bg-primary text-primary-foreground" role="status" data-testid="banner-queue">
+      <div className="container mx-auto px-4 py-2 flex items-center justify-center gap-2 text-sm">
+        <Clock className="h-4 w-4" />
+        {queue.position > 0 ? (
+          <span>
+            You're in line (position {queue.position}, about {queue.estimatedWaitSeconds}s). Your cart update will go through automatically.
+          </span>
+        ) : (
+          <span>We're busy right now. Your cart update will go through in a moment.</span>
+        )}
+      </div>
+    </div>
+  );
+}
@@ -1,4 +1,5 @@
 import { QueryClient, QueryFunction } from "@tanstack/react-query";
+import { fetchThroughQueue } from "./waitingRoom";
 
 async function throwIfResNotOk(res: Response) {
   if (!res.ok) {
@@ -15,7 +16,7 @@ export async function apiRequest(
   const apiBase = import.meta.env.VITE_API_URL || "";
   const fullUrl = url.startsWith("/api") ? `${apiBase}${url}` : url;
 
-  const res = await fetch(fullUrl, {
+  const res = await fetchThroughQueue(apiBase, fullUrl, {
     method,
     headers: data ? { "Content-Type": "application/json" } : {},
     body: data ? JSON.stringify(data) : undefined,
@@ -41,6 +41,7 @@ export interface CartItemWithProduct {
   price: string;
   product: ProductWithCategory;
   variant?: ProductVariant | null;
+  reservationLapsed?: boolean;
 }
 
 export interface OrderWithItems {
@@ -0,0 +1,94 @@
+// Client side of the launch waiting room (see WaitingRoom on the server). Requests to queued paths
+// come back 403 until the visitor holds a ticket and 503 while that ticket waits for its turn; both
+// carry X-Queue-Status. fetchThroughQueue joins the line, waits out Retry-After and sends the request
+// again, so callers only ever see the final response.
+
+const TICKET_HEADER = "X-Queue-Ticket";
+const STATUS_HEADER = "X-Queue-Status";
+
+export interface QueueState {
+  waiting: boolean;
+  position: number;
+  estimatedWaitSeconds: number;
+}
+
+type Listener = (state: QueueState) => void;
+
+const idle: QueueState = { waiting: false, position: 0, estimatedWaitSeconds: 0 };
+const listeners = new Set<Listener>();
+let ticket: string | null = null;
+let joining: Promise<void> | null = null;
+let waitingRequests = 0;
+
+export function subscribeToQueue(listener: Listener): () => void {
+  listeners.add(listener);
+  return () => {
+    listeners.delete(listener);
+  };
+}
+
+function publish(state: QueueState) {
+  listeners.forEach((listener) => listener(state));
+}
+
+function withTicket(init: RequestInit): RequestInit {
+  if (!ticket) {
+    return init;
+  }
+  const headers = new Headers(init.headers);
+  headers.set(TICKET_HEADER, ticket);
+  return { ...init, headers };
+}
+
+// Concurrent requests that all need a ticket share one join
+function join(apiBase: string): Promise<void> {
+  if (!joining) {
+    joining = (async () => {
+      const res = await fetch(`${apiBase}/api/queue/join`, withTicket({ method: "POST", credentials: "include" }));
+      if (!res.ok) {
+        throw new Error(`${res.status}: ${(await res.text()) || res.statusText}`);
+      }
+      const body = await res.json();
+      ticket = body.token ?? null;
+    })().finally(() => {
+      joining = null;
+    });
+  }
+  return joining;
+}
+
+function sleep(ms: number) {
+  return new Promise((resolve) => setTimeout(resolve, ms));
+}
+
+export async function fetchThroughQueue(apiBase: string, url: string, init: RequestInit): Promise<Response> {
+  let counted = false;
+  try {
+    for (;;) {
+      const res = await fetch(url, withTicket(init));
+      const status = res.headers.get(STATUS_HEADER);
+      if (status === "join-required") {
+        await join(apiBase);
+      } else if (status === "waiting") {
+        const body = await res.json().catch(() => ({}));
+        const retryAfter = Math.max(1, Number(res.headers.get("Retry-After")) || 1);
+        if (!counted) {
+          counted = true;
+          waitingRequests++;
+        }
+        publish({
+          waiting: true,
+          position: body.position ?? 0,
+          estimatedWaitSeconds: body.estimatedWaitSeconds ?? retryAfter,
+        });
+        await sleep(retryAfter * 1000);
+      } else {
+        return res;
+      }
+    }
+  } finally {
+    if (counted && --waitingRequests === 0) {
+      publish(idle);
+    }
+  }
+}